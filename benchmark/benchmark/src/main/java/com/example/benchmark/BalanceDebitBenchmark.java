@@ -0,0 +1,79 @@
+package com.example.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.DTO.money.Money;
+import com.example.DTO.order.OrdersDTOSend;
+import com.project.payment.balance.BalanceService;
+import com.project.payment.balance.CoalescedDebits;
+import com.project.payment.outbox.OutboxRepository;
+import com.project.payment.outbox.OutboxService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// BalanceService.checkBalanceAndDeduct with balances held in memory. the outbox row is still built and
+// its payload serialized, only the INSERT is replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BalanceDebitBenchmark {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private OrdersDTOSend[] orders;
+
+    private BalanceService balanceService;
+
+    @Setup
+    public void setUp() {
+        orders = OrderFixtures.ring(OrderFixtures::reservedOrder);
+        OutboxService outboxService = new OutboxService();
+        ReflectionTestUtils.setField(outboxService, "outboxRepository",
+                StandIns.savingRepository(OutboxRepository.class));
+        ReflectionTestUtils.setField(outboxService, "objectMapper", OrderFixtures.MAPPER);
+
+        balanceService = new BalanceService();
+        StandIns.InMemoryBalances balances = new StandIns.InMemoryBalances()
+                .put(OrderFixtures.CUSTOMER_ID, Money.ofMinor(Long.MAX_VALUE / 4));
+        ReflectionTestUtils.setField(balanceService, "balanceDebitRepository", balances);
+        // coalescing off, the guarded UPDATE per order is what is measured
+        ReflectionTestUtils.setField(balanceService, "coalescedDebits", new CoalescedDebits(balances, null,
+                outboxService, new StandIns.NoTransactions(), new SimpleMeterRegistry(), false,
+                Duration.ofMillis(2), 64));
+        ReflectionTestUtils.setField(balanceService, "outboxService", outboxService);
+        ReflectionTestUtils.setField(balanceService, "transactionalOperator", new StandIns.NoTransactions());
+        ReflectionTestUtils.setField(balanceService, "idempotencyGuard", StandIns.idempotency());
+        ReflectionTestUtils.setField(balanceService, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public OrdersDTOSend checkBalanceAndDeduct() {
+        return balanceService.checkBalanceAndDeduct(OrderFixtures.next(orders, counter)).block();
+    }
+
+    // every order from the same customer
+    @Benchmark
+    @Threads(8)
+    public OrdersDTOSend checkBalanceAndDeductContended() {
+        return balanceService.checkBalanceAndDeduct(OrderFixtures.next(orders, counter)).block();
+    }
+
+}
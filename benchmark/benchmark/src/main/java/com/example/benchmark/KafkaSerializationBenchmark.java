@@ -0,0 +1,79 @@
+package com.example.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.DTO.order.OrdersDTOSend;
+
+// OrdersDTOSend through the same JsonSerializer / JsonDeserializer setup as product's KafkaConfig:
+// type headers off the wire, trusted packages "*", target type from the default type header
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class KafkaSerializationBenchmark {
+
+    private static final String TOPIC = "order-update";
+
+    private JsonSerializer<Object> serializer;
+
+    private JsonDeserializer<Object> deserializer;
+
+    private OrdersDTOSend order;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        serializer = new JsonSerializer<>();
+        serializer.configure(Map.of(), false);
+
+        Map<String, Object> consumerProps = new HashMap<>();
+        consumerProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        consumerProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, OrdersDTOSend.class.getName());
+        deserializer = new JsonDeserializer<>();
+        deserializer.configure(consumerProps, false);
+
+        order = OrderFixtures.reservedOrder(1L);
+        payload = serializer.serialize(TOPIC, order);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, order);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return deserializer.deserialize(TOPIC, payload);
+    }
+
+    @Benchmark
+    public Object roundTrip() {
+        return deserializer.deserialize(TOPIC, serializer.serialize(TOPIC, order));
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.example.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// fixed orders for every benchmark, so two runs measure exactly the same payloads
+public final class OrderFixtures {
+
+    public static final long PRODUCT_ID = 42L;
+
+    public static final long CUSTOMER_ID = 7L;
+
+    public static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private static final String ORDER = """
+            {"id":%d,"ordersDTO":{"customer_id":%d,"total_amount":%s,"order_status":%s,
+            "orderItems":{"product_id":%d,"quantity":%d,"price":%s}}}""";
+
+    // power of two, so a running counter picks a slot with a mask
+    public static final int RING_SIZE = 1 << 12;
+
+    private OrderFixtures() {
+    }
+
+    // orders parsed once in @Setup and reused, so the measured code is not the fixture's JSON parsing.
+    // the services overwrite every field they set, which makes reusing a slot safe
+    public static OrdersDTOSend[] ring(LongFunction<OrdersDTOSend> factory) {
+        OrdersDTOSend[] orders = new OrdersDTOSend[RING_SIZE];
+        for (int i = 0; i < RING_SIZE; i++) {
+            orders[i] = factory.apply(i + 1);
+        }
+        return orders;
+    }
+
+    public static OrdersDTOSend next(OrdersDTOSend[] ring, AtomicLong counter) {
+        return ring[(int) (counter.getAndIncrement() & (RING_SIZE - 1))];
+    }
+
+    // an order the way the order service hands it to the orchestrator
+    public static OrdersDTOSend newOrder(long id) {
+        return read(String.format(ORDER, id, CUSTOMER_ID, "null", "null", PRODUCT_ID, 3, "null"));
+    }
+
+    // the same order after product priced it and reserved the stock
+    public static OrdersDTOSend reservedOrder(long id) {
+        return read(String.format(ORDER, id, CUSTOMER_ID, "59.97", "\"PROCESSING\"", PRODUCT_ID, 3, "19.99"));
+    }
+
+    public static String reservedOrderJson(long id) {
+        return write(reservedOrder(id));
+    }
+
+    public static String completedOrderJson(long id) {
+        return write(read(String.format(ORDER, id, CUSTOMER_ID, "59.97", "\"COMPLETED\"", PRODUCT_ID, 3,
+                "19.99")));
+    }
+
+    private static OrdersDTOSend read(String json) {
+        try {
+            return MAPPER.readValue(json, OrdersDTOSend.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Broken order fixture", e);
+        }
+    }
+
+    private static String write(OrdersDTOSend order) {
+        try {
+            return MAPPER.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Broken order fixture", e);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.example.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+// compares a JMH JSON result with a baseline result and exits with 1 when any benchmark got slower than
+// the tolerance allows (lower throughput, or higher average time).
+// usage: RegressionGate <baseline.json> <candidate.json> [tolerance percent, default 10]
+public class RegressionGate {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: RegressionGate <baseline.json> <candidate.json> [tolerance-percent]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.10;
+
+        Map<String, JsonNode> baseline = read(args[0]);
+        Map<String, JsonNode> candidate = read(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            double old = before.path("primaryMetric").path("score").asDouble();
+            double now = entry.getValue().path("primaryMetric").path("score").asDouble();
+            // throughput modes: higher is better, time modes: lower is better
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            double change = (now - old) / old;
+            boolean regressed = higherIsBetter ? change < -tolerance : change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "OK",
+                    entry.getKey(), old, now, entry.getValue().path("primaryMetric").path("scoreUnit").asText(),
+                    change * 100);
+        }
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    private static Map<String, JsonNode> read(String file) throws IOException {
+        Map<String, JsonNode> results = new HashMap<>();
+        for (JsonNode result : OrderFixtures.MAPPER.readTree(new File(file))) {
+            results.put(result.path("benchmark").asText() + " [" + result.path("mode").asText() + "]", result);
+        }
+        return results;
+    }
+
+}
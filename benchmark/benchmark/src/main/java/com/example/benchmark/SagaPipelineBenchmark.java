@@ -0,0 +1,125 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.orchestrator.OrchestratorService;
+import com.example.orchestrator.kafka.OrchestratorProducer;
+import com.example.orchestrator.metrics.SagaMetrics;
+import com.example.orchestrator.resilience.AdaptiveConcurrencyLimiter;
+import com.example.orchestrator.resilience.CircuitBreaker;
+import com.example.orchestrator.resilience.DownstreamGuard;
+import com.example.orchestrator.saga.HttpSagaTransport;
+import com.example.orchestrator.saga.SagaEngine;
+import com.example.orchestrator.saga.SagaLog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// the whole orchestrator saga: queue, saga log, guards, metrics, WebClient encoding and decoding.
+// product and payment are exchange functions answering with a canned success, so what is measured
+// is the orchestrator's own overhead per order
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SagaPipelineBenchmark {
+
+    private static final int BURST = 256;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private OrdersDTOSend[] orders;
+
+    private Path sagaLogFile;
+
+    private SagaLog sagaLog;
+
+    private SagaEngine sagaEngine;
+
+    @Setup
+    public void setUp() throws IOException {
+        orders = OrderFixtures.ring(OrderFixtures::newOrder);
+        sagaLogFile = Files.createTempFile("saga-benchmark", ".log");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SagaMetrics sagaMetrics = new SagaMetrics(registry);
+        OrchestratorService orchestratorService = new OrchestratorService(
+                stubbedClient(OrderFixtures.reservedOrderJson(1L)),
+                stubbedClient(OrderFixtures.completedOrderJson(1L)),
+                guard("product"), guard("payment"), sagaMetrics);
+
+        sagaLog = new SagaLog(OrderFixtures.MAPPER, sagaLogFile.toString(), 100_000);
+        sagaEngine = new SagaEngine(orchestratorService, new HttpSagaTransport(orchestratorService),
+                Mockito.mock(OrchestratorProducer.class), sagaLog, sagaMetrics, BURST, 10_000, false, 0, 0, false);
+        sagaEngine.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sagaEngine.stop();
+        sagaLog.closeWriter();
+        Files.deleteIfExists(sagaLogFile);
+    }
+
+    // one order at a time, the latency of a single saga
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public OrdersDTOSend singleSaga() {
+        return sagaEngine.submit(OrderFixtures.next(orders, counter)).block();
+    }
+
+    // BURST orders submitted together, the throughput with the pipeline's concurrency in use
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public OrdersDTOSend burst() {
+        return Flux.range(0, BURST)
+                .flatMap(i -> sagaEngine.submit(OrderFixtures.next(orders, counter)), BURST)
+                .blockLast();
+    }
+
+    private WebClient stubbedClient(String responseJson) {
+        return WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(responseJson)
+                        .build()))
+                .build();
+    }
+
+    // limits high enough that the guards are measured but never reject
+    private DownstreamGuard guard(String name) {
+        return new DownstreamGuard(name,
+                new CircuitBreaker(100, 100, 100, Duration.ofSeconds(1), 1),
+                new AdaptiveConcurrencyLimiter(BURST, BURST * 4, Duration.ofSeconds(1), 0.9));
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionCallback;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.DTO.money.Money;
+import com.example.idempotency.IdempotencyGuard;
+import com.project.payment.balance.Balance;
+import com.project.payment.balance.BalanceDebitRepository;
+import com.project.payment.balance.BalanceSnapshot;
+import com.project.payment.balance.DebitOutcome;
+import com.project.product.Product;
+import com.project.product.ProductStockRepository;
+import com.project.product.ReservedStock;
+import com.project.product.hotsku.HotSkuStock;
+import com.project.product.hotsku.HotStockEntry;
+import com.project.product.hotsku.HotStockRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// in-memory replacements for everything behind the services that would need a database, so the
+// benchmarks measure the service code itself and run the same on any machine without Postgres
+public final class StandIns {
+
+    private StandIns() {
+    }
+
+    // the conditional UPDATE ... WHERE stock_quantity >= :quantity as a compare-and-set loop, the hold row
+    // written by the same statement is not modelled
+    public static class InMemoryProductStock implements ProductStockRepository {
+
+        private final Map<Long, AtomicInteger> stock = new ConcurrentHashMap<>();
+
+        private final Map<Long, Money> prices = new ConcurrentHashMap<>();
+
+        public InMemoryProductStock put(Long id, Money price, int quantity) {
+            prices.put(id, price);
+            stock.put(id, new AtomicInteger(quantity));
+            return this;
+        }
+
+        @Override
+        public Mono<ReservedStock> reserve(Long orderId, Long id, Integer quantity, LocalDateTime expiresAt) {
+            return Mono.fromSupplier(() -> {
+                AtomicInteger left = stock.get(id);
+                if (left == null) {
+                    return null;
+                }
+                while (true) {
+                    int current = left.get();
+                    if (current < quantity) {
+                        return null;
+                    }
+                    if (left.compareAndSet(current, current - quantity)) {
+                        return new ReservedStock(prices.get(id), current - quantity);
+                    }
+                }
+            });
+        }
+
+        // no row to lock, the read is only there for the interface
+        @Override
+        public Mono<ReservedStock> lockStock(Long id) {
+            return Mono.fromSupplier(() -> {
+                AtomicInteger left = stock.get(id);
+                return left == null ? null : new ReservedStock(prices.get(id), left.get());
+            });
+        }
+
+        @Override
+        public Mono<Product> addStock(Long id, Integer quantity) {
+            return Mono.fromSupplier(() -> {
+                AtomicInteger left = stock.get(id);
+                if (left == null) {
+                    return null;
+                }
+                return Product.builder()
+                        .id(id)
+                        .price(prices.get(id).toFloat())
+                        .stock_quantity(left.addAndGet(quantity))
+                        .build();
+            });
+        }
+
+        @Override
+        public Mono<Map<Long, ReservedStock>> reserveAll(Long orderId, Map<Long, Integer> quantities,
+                LocalDateTime expiresAt) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+    }
+
+    // the guarded balance UPDATE as a compare-and-set loop on minor units
+    public static class InMemoryBalances implements BalanceDebitRepository {
+
+        private final Map<Long, AtomicLong> balances = new ConcurrentHashMap<>();
+
+        public InMemoryBalances put(Long customerId, Money amount) {
+            balances.put(customerId, new AtomicLong(amount.getMinorUnits()));
+            return this;
+        }
+
+        @Override
+        public Mono<DebitOutcome> debit(Long customerId, Money amount) {
+            return Mono.fromSupplier(() -> {
+                AtomicLong balance = balances.get(customerId);
+                if (balance == null) {
+                    return DebitOutcome.NOT_FOUND;
+                }
+                while (true) {
+                    long current = balance.get();
+                    if (current < amount.getMinorUnits()) {
+                        return DebitOutcome.INSUFFICIENT;
+                    }
+                    if (balance.compareAndSet(current, current - amount.getMinorUnits())) {
+                        return DebitOutcome.DEBITED;
+                    }
+                }
+            });
+        }
+
+        @Override
+        public Mono<Money> lockAmount(Long customerId) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+        @Override
+        public Mono<Long> subtract(Long customerId, Money amount) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+        @Override
+        public Mono<Balance> credit(Long id, Money amount) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+        @Override
+        public Mono<Balance> assignCustomer(Long id) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+        @Override
+        public Mono<BalanceSnapshot> findSnapshot(Long id) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+        @Override
+        public Mono<BalanceSnapshot> findSnapshotByCustomer(Long customerId) {
+            return Mono.error(new UnsupportedOperationException("not benchmarked"));
+        }
+
+    }
+
+    // runs the publisher as is, there is no transaction to join
+    public static class NoTransactions implements TransactionalOperator {
+
+        @Override
+        public <T> Mono<T> transactional(Mono<T> mono) {
+            return mono;
+        }
+
+        @Override
+        public <T> Flux<T> execute(TransactionCallback<T> action) {
+            return Flux.from(action.doInTransaction((ReactiveTransaction) null));
+        }
+
+    }
+
+    // the first call of every order id, which is what the order path normally sees
+    public static IdempotencyGuard idempotency() {
+        return new IdempotencyGuard(null, new NoTransactions(), OrderFixtures.MAPPER, 1,
+                IllegalStateException::new) {
+
+            @Override
+            public <T> Mono<T> execute(String operation, Object orderId, Class<T> type,
+                    Supplier<Mono<T>> action) {
+                return action.get();
+            }
+        };
+    }
+
+    // hot stock mode for the given product id -> stock at StockDeductionBenchmark.PRICE, the flush only
+    // counts the entries. an empty map gives the mode switched off, as it is by default
+    public static HotSkuStock hotSkuStock(Map<Long, Integer> stock) throws IOException {
+        HotStockRepository repository = new HotStockRepository() {
+
+            @Override
+            public Mono<Map<Long, ReservedStock>> load(Collection<Long> productIds) {
+                Map<Long, ReservedStock> loaded = new HashMap<>();
+                stock.forEach((id, quantity) -> loaded.put(id,
+                        new ReservedStock(StockDeductionBenchmark.PRICE, quantity)));
+                return Mono.just(loaded);
+            }
+
+            @Override
+            public Mono<Long> applyHolds(List<HotStockEntry> entries) {
+                return Mono.just((long) entries.size());
+            }
+        };
+        Path log = Files.createTempFile("hot-stock", ".log");
+        Files.delete(log);
+        return new HotSkuStock(repository, new SimpleMeterRegistry(), OrderFixtures.MAPPER, stock.keySet(), 0,
+                Duration.ofMillis(100), log.toString(), false, Duration.ZERO, 256);
+    }
+
+    // a Spring Data repository interface where save() hands the entity back and nothing else is called
+    @SuppressWarnings("unchecked")
+    public static <R> R savingRepository(Class<R> type) {
+        return (R) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> Mono.just(args[0]);
+                    case "toString" -> type.getSimpleName() + " stand-in";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName() + " not benchmarked");
+                });
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.example.benchmark;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.DTO.money.Money;
+import com.example.DTO.order.OrdersDTOSend;
+import com.project.product.ProductService;
+import com.project.product.cache.ProductCatalogCache;
+import com.project.product.hotsku.HotSkuStock;
+import com.project.product.reservation.CoalescedReservations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// ProductService.checkAndDeductStock with the stock held in memory: pricing, Money arithmetic, the
+// cache update, DTO copying, logging and the metrics timer, without the database round trip
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class StockDeductionBenchmark {
+
+    static final Money PRICE = Money.ofMajor(19.99f);
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private OrdersDTOSend[] orders;
+
+    private ProductService productService;
+
+    private HotSkuStock hotSkuStock;
+
+    // the same product served from the striped counters, the hot stock log goes to a temp file
+    private ProductService hotProductService;
+
+    @Setup
+    public void setUp() throws IOException {
+        orders = OrderFixtures.ring(OrderFixtures::newOrder);
+        productService = productService(StandIns.hotSkuStock(Map.of()));
+        hotSkuStock = StandIns.hotSkuStock(Map.of(OrderFixtures.PRODUCT_ID, 1_000_000_000));
+        hotSkuStock.start();
+        hotProductService = productService(hotSkuStock);
+    }
+
+    @TearDown
+    public void tearDown() {
+        hotSkuStock.stop();
+    }
+
+    private ProductService productService(HotSkuStock hotSkuStock) {
+        ProductService service = new ProductService();
+        // enough stock that no measurement iteration runs out
+        StandIns.InMemoryProductStock stock = new StandIns.InMemoryProductStock()
+                .put(OrderFixtures.PRODUCT_ID, PRICE, 1_000_000_000);
+        ReflectionTestUtils.setField(service, "productStockRepository", stock);
+        // coalescing off, a batch needs the reservation table to look up held orders
+        ReflectionTestUtils.setField(service, "coalescedReservations", new CoalescedReservations(stock, null, null,
+                new StandIns.NoTransactions(), new SimpleMeterRegistry(), false, Duration.ofMillis(2), 64));
+        ReflectionTestUtils.setField(service, "productCatalogCache",
+                new ProductCatalogCache(10_000, Duration.ofMinutes(5)));
+        ReflectionTestUtils.setField(service, "hotSkuStock", hotSkuStock);
+        ReflectionTestUtils.setField(service, "idempotencyGuard", StandIns.idempotency());
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "reservationTtl", Duration.ofMinutes(15));
+        return service;
+    }
+
+    @Benchmark
+    public OrdersDTOSend checkAndDeductStock() {
+        return productService.checkAndDeductStock(OrderFixtures.next(orders, counter)).block();
+    }
+
+    // every order on the same product, the hot SKU case
+    @Benchmark
+    @Threads(8)
+    public OrdersDTOSend checkAndDeductStockContended() {
+        return productService.checkAndDeductStock(OrderFixtures.next(orders, counter)).block();
+    }
+
+    // the hot SKU case with the product in hot stock mode, includes the append to the hot stock log
+    @Benchmark
+    @Threads(8)
+    public OrdersDTOSend checkAndDeductStockHot() {
+        return hotProductService.checkAndDeductStock(OrderFixtures.next(orders, counter)).block();
+    }
+
+}
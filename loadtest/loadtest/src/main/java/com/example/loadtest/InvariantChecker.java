@@ -0,0 +1,65 @@
+package com.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.DTO.money.Money;
+
+// compares the before and after snapshots with the outcomes the harness saw. exact only when nothing
+// else changes stock or balances during the run
+public class InvariantChecker {
+
+    public List<String> check(Snapshot before, Snapshot after, Map<Long, LoadRecorder.Result> results,
+            long conflicting) {
+        List<String> violations = new ArrayList<>();
+
+        Map<Long, Long> sold = new HashMap<>();
+        Map<Long, Money> charged = new HashMap<>();
+        for (LoadRecorder.Result result : results.values()) {
+            if (result.outcome() == LoadRecorder.Outcome.COMPLETED) {
+                sold.merge(result.order().productId(), (long) result.order().quantity(), Long::sum);
+                charged.merge(result.order().customerId(), result.charged(), Money::plus);
+            }
+        }
+
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        after.products().forEach(product -> stockAfter.put(product.id(), product.stock()));
+        for (Snapshot.ProductState product : before.products()) {
+            int left = stockAfter.getOrDefault(product.id(), product.stock());
+            long taken = product.stock() - left;
+            long expected = sold.getOrDefault(product.id(), 0L);
+            if (left < 0) {
+                violations.add(String.format("OVERSELL product %d has negative stock %d", product.id(), left));
+            } else if (taken < expected) {
+                violations.add(String.format("OVERSELL product %d sold %d but stock went down by %d",
+                        product.id(), expected, taken));
+            } else if (taken > expected) {
+                violations.add(String.format("STOCK LEAK product %d sold %d but stock went down by %d",
+                        product.id(), expected, taken));
+            }
+        }
+
+        for (Map.Entry<Long, Money> balance : before.balances().entrySet()) {
+            Money left = after.balances().getOrDefault(balance.getKey(), balance.getValue());
+            Money debited = balance.getValue().minus(left);
+            Money expected = charged.getOrDefault(balance.getKey(), Money.ZERO);
+            if (left.isNegative()) {
+                violations.add(String.format("OVERDRAFT customer %d has balance %s", balance.getKey(), left));
+            } else if (expected.isLessThan(debited)) {
+                violations.add(String.format("DOUBLE CHARGE customer %d owed %s but was debited %s",
+                        balance.getKey(), expected, debited));
+            } else if (debited.isLessThan(expected)) {
+                violations.add(String.format("UNDERCHARGE customer %d owed %s but was debited %s",
+                        balance.getKey(), expected, debited));
+            }
+        }
+
+        if (conflicting > 0) {
+            violations.add(conflicting + " order(s) got both a COMPLETED and a FAILED status");
+        }
+        return violations;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.example.loadtest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// one run: snapshot, offer the order mix at the target rate, wait for the statuses, snapshot again,
+// then report throughput, latency percentiles and the stock / balance invariants
+@Slf4j
+public class LoadDriver {
+
+    private final LoadTestProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    public LoadDriver(LoadTestProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    // true when every invariant held
+    public boolean run() throws Exception {
+        SnapshotClient snapshots = new SnapshotClient(properties);
+        Snapshot before = snapshots.take();
+        OrderMix mix = new OrderMix(properties.getMix(), before, properties.getSeed(), properties.getFirstOrderId());
+        LoadRecorder recorder = new LoadRecorder();
+
+        long started;
+        long generated;
+        try (StatusListener listener = new StatusListener(properties, objectMapper, recorder);
+                OrderSubmitter submitter = OrderSubmitter.create(properties, objectMapper)) {
+            listener.start();
+
+            long periodNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, properties.getRate());
+            long ticks = properties.getDuration().toNanos() / periodNanos;
+            long warmupTicks = properties.getWarmup().toNanos() / periodNanos;
+            log.info("Offering {} basket(s) at {}/s for {}", ticks, properties.getRate(), properties.getDuration());
+
+            started = System.nanoTime();
+            generated = Flux.interval(Duration.ofNanos(periodNanos))
+                    .onBackpressureDrop(tick -> recorder.dropped())
+                    .take(ticks)
+                    .flatMap(tick -> offer(mix, recorder, submitter, tick >= warmupTicks), Integer.MAX_VALUE)
+                    .count()
+                    .block();
+
+            long deadline = System.nanoTime() + properties.getDrainTimeout().toNanos();
+            while (recorder.outstanding() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        Snapshot after = snapshots.take();
+        List<String> violations = new InvariantChecker().check(before, after, recorder.results(),
+                recorder.conflicting());
+        report(recorder, generated, seconds, violations);
+        return violations.isEmpty();
+    }
+
+    private Mono<Void> offer(OrderMix mix, LoadRecorder recorder, OrderSubmitter submitter, boolean measured) {
+        if (recorder.outstanding() >= properties.getMaxOutstanding()) {
+            recorder.dropped();
+            return Mono.empty();
+        }
+        List<PlannedOrder> basket;
+        synchronized (mix) {
+            basket = mix.nextBasket();
+        }
+        return Flux.fromIterable(basket)
+                .flatMap(order -> {
+                    recorder.sent(order, measured);
+                    return submitter.submit(order)
+                            .onErrorResume(error -> {
+                                log.debug("Submitting order {} failed: {}", order.orderId(), error.getMessage());
+                                recorder.submitFailed(order);
+                                return Mono.empty();
+                            });
+                })
+                .then();
+    }
+
+    private void report(LoadRecorder recorder, long generated, double seconds, List<String> violations) {
+        Histogram latencies = recorder.latencies();
+        long completed = recorder.results().values().stream()
+                .filter(result -> result.outcome() == LoadRecorder.Outcome.COMPLETED)
+                .count();
+        long failed = recorder.results().size() - completed;
+
+        StringBuilder report = new StringBuilder("\n==== load test ====\n");
+        report.append(String.format("baskets offered   %d in %.1fs%n", generated, seconds));
+        report.append(String.format("orders sent       %d (%d submit errors, %d dropped at the generator)%n",
+                recorder.submitted(), recorder.submitErrors(), recorder.dropped()));
+        report.append(String.format("final statuses    %d completed, %d failed, %d without status%n",
+                completed, failed, recorder.outstanding()));
+        report.append(String.format("throughput        %.1f statuses/s%n", recorder.results().size() / seconds));
+        report.append(String.format("duplicates        %d repeated, %d conflicting, %d unknown%n",
+                recorder.duplicates(), recorder.conflicting(), recorder.unknown()));
+        report.append(String.format("latency (ms)      p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(90) / 1000.0,
+                latencies.getValueAtPercentile(99) / 1000.0, latencies.getValueAtPercentile(99.9) / 1000.0,
+                latencies.getMaxValue() / 1000.0));
+        if (violations.isEmpty()) {
+            report.append("invariants        OK\n");
+        } else {
+            report.append("invariants        ").append(violations.size()).append(" VIOLATION(S)\n");
+            violations.forEach(violation -> report.append("  ").append(violation).append('\n'));
+        }
+        log.info(report.toString());
+
+        // the full distribution, for plotting or comparing runs
+        latencies.outputPercentileDistribution(System.out, 1000.0);
+    }
+
+}
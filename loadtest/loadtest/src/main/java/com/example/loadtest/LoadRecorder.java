@@ -0,0 +1,119 @@
+package com.example.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.example.DTO.money.Money;
+
+// what happened to every generated order: when it was sent, the first final status seen for it and
+// anything seen after that. latencies go into an HdrHistogram, submit to status record consumed
+public class LoadRecorder {
+
+    public enum Outcome {
+        COMPLETED,
+        FAILED
+    }
+
+    public record Result(PlannedOrder order, Outcome outcome, Money charged) {
+    }
+
+    private record Pending(PlannedOrder order, long sentNanos, boolean measured) {
+    }
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    private final Map<Long, Result> results = new ConcurrentHashMap<>();
+
+    // one hour in microseconds is the highest trackable latency
+    private final Recorder latencies = new Recorder(TimeUnit.HOURS.toMicros(1), 3);
+
+    private final LongAdder submitted = new LongAdder();
+
+    private final LongAdder submitErrors = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder duplicates = new LongAdder();
+
+    private final LongAdder conflicting = new LongAdder();
+
+    private final LongAdder unknown = new LongAdder();
+
+    public void sent(PlannedOrder order, boolean measured) {
+        pending.put(order.orderId(), new Pending(order, System.nanoTime(), measured));
+        submitted.increment();
+    }
+
+    public void submitFailed(PlannedOrder order) {
+        pending.remove(order.orderId());
+        submitErrors.increment();
+    }
+
+    public void dropped() {
+        dropped.increment();
+    }
+
+    // a status message from order-update or order-update-fail
+    public void status(long orderId, Outcome outcome, Money charged) {
+        Pending sent = pending.remove(orderId);
+        if (sent == null) {
+            Result first = results.get(orderId);
+            if (first == null) {
+                unknown.increment();
+            } else if (first.outcome() == outcome) {
+                duplicates.increment();
+            } else {
+                conflicting.increment();
+            }
+            return;
+        }
+        if (sent.measured()) {
+            latencies.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent.sentNanos())));
+        }
+        results.put(orderId, new Result(sent.order(), outcome, charged));
+    }
+
+    public int outstanding() {
+        return pending.size();
+    }
+
+    public Map<Long, Result> results() {
+        return results;
+    }
+
+    public Histogram latencies() {
+        return latencies.getIntervalHistogram();
+    }
+
+    public long submitted() {
+        return submitted.sum();
+    }
+
+    public long submitErrors() {
+        return submitErrors.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    // the same status delivered again, harmless with at least once delivery
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    // a second, different final status for an order: always a bug
+    public long conflicting() {
+        return conflicting.sum();
+    }
+
+    public long unknown() {
+        return unknown.sum();
+    }
+
+}
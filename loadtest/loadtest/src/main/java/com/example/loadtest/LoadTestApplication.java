@@ -0,0 +1,70 @@
+package com.example.loadtest;
+
+import java.net.URI;
+
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+// drives the order saga of the services running on localhost, see LoadTestProperties for the knobs.
+// exits with 1 when an invariant was violated, so it can gate a change in a pipeline
+@Slf4j
+@SpringBootApplication
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestApplication implements CommandLineRunner, ExitCodeGenerator {
+
+    private final LoadTestProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    private int exitCode;
+
+    public LoadTestApplication(LoadTestProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    public static void main(String[] args) {
+        System.exit(SpringApplication.exit(new SpringApplicationBuilder(LoadTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)));
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        EmbeddedKafkaKraftBroker broker = properties.isEmbeddedKafka() ? startBroker() : null;
+        try {
+            exitCode = new LoadDriver(properties, objectMapper).run() ? 0 : 1;
+        } finally {
+            if (broker != null) {
+                broker.destroy();
+            }
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    // the services connect to localhost:9092, so the broker takes the port they expect
+    private EmbeddedKafkaKraftBroker startBroker() {
+        int port = URI.create("kafka://" + properties.getKafkaBootstrapServers().split(",")[0]).getPort();
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 3, properties.getSubmit().getTopic(),
+                "order-update", "order-update-fail");
+        broker.kafkaPorts(port);
+        broker.afterPropertiesSet();
+        log.info("Embedded Kafka started on {}", broker.getBrokersAsString());
+        return broker;
+    }
+
+}
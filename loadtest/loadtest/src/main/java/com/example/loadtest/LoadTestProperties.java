@@ -0,0 +1,79 @@
+package com.example.loadtest;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// loadtest.* settings, every one can be given on the command line, e.g. --loadtest.rate=500
+@Data
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    // orders per second, offered open loop: a slow system does not slow the generator down
+    private int rate = 200;
+
+    private Duration duration = Duration.ofMinutes(1);
+
+    // orders before this point are sent but left out of the latency histogram
+    private Duration warmup = Duration.ofSeconds(10);
+
+    // how long to wait for the last statuses after the generator stopped
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    // orders without a status beyond this are not generated, the run reports them as dropped
+    private int maxOutstanding = 20_000;
+
+    // same seed, same order sequence
+    private long seed = 42;
+
+    // ids far above what the order service hands out, so the harness can tell its own orders apart
+    private long firstOrderId = 900_000_000L;
+
+    private String productUrl = "http://localhost:8082";
+
+    private String paymentUrl = "http://localhost:8081";
+
+    private String kafkaBootstrapServers = "localhost:9092";
+
+    // start an in-process broker on kafkaBootstrapServers' port instead of using a running one
+    private boolean embeddedKafka = false;
+
+    private Mix mix = new Mix();
+
+    private Submit submit = new Submit();
+
+    @Data
+    public static class Mix {
+
+        // the first hotProducts products of the snapshot get hotShare of all order lines
+        private int hotProducts = 3;
+
+        private double hotShare = 0.8;
+
+        // share of orders sized so that the customer's balance cannot cover them
+        private double insufficientBalanceRatio = 0.1;
+
+        // lines per basket, every line is its own order (one product per OrdersDTOSend)
+        private int minBasketSize = 1;
+
+        private int maxBasketSize = 1;
+
+        private int maxQuantity = 3;
+
+    }
+
+    @Data
+    public static class Submit {
+
+        // kafka: publish OrdersDTOSend to topic, http: POST it to url
+        private String mode = "kafka";
+
+        private String topic = "order-created";
+
+        private String url = "http://localhost:8080/order";
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.example.DTO.money.Money;
+
+// turns the snapshot into a reproducible stream of orders: hot products get hotShare of the lines, a share
+// of the baskets is sized beyond the customer's balance, and every basket has one customer
+public class OrderMix {
+
+    private final LoadTestProperties.Mix mix;
+
+    private final Random random;
+
+    private final List<Snapshot.ProductState> hot;
+
+    private final List<Snapshot.ProductState> cold;
+
+    private final List<Map.Entry<Long, Money>> customers;
+
+    private long nextOrderId;
+
+    public OrderMix(LoadTestProperties.Mix mix, Snapshot snapshot, long seed, long firstOrderId) {
+        List<Snapshot.ProductState> products = snapshot.products().stream()
+                .filter(product -> product.stock() > 0 && !product.price().isNegative())
+                .toList();
+        if (products.isEmpty() || snapshot.balances().isEmpty()) {
+            throw new IllegalStateException("Load test needs products with stock and customers with a balance");
+        }
+        this.mix = mix;
+        this.random = new Random(seed);
+        int hotCount = Math.min(mix.getHotProducts(), products.size());
+        this.hot = products.subList(0, hotCount);
+        this.cold = products.subList(hotCount, products.size());
+        this.customers = new ArrayList<>(snapshot.balances().entrySet());
+        this.nextOrderId = firstOrderId;
+    }
+
+    public List<PlannedOrder> nextBasket() {
+        Map.Entry<Long, Money> customer = customers.get(random.nextInt(customers.size()));
+        boolean overBalance = random.nextDouble() < mix.getInsufficientBalanceRatio();
+        int size = mix.getMinBasketSize()
+                + random.nextInt(Math.max(1, mix.getMaxBasketSize() - mix.getMinBasketSize() + 1));
+
+        List<PlannedOrder> basket = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Snapshot.ProductState product = nextProduct();
+            int quantity = overBalance
+                    ? quantityOver(customer.getValue(), product)
+                    : 1 + random.nextInt(Math.max(1, mix.getMaxQuantity()));
+            basket.add(new PlannedOrder(nextOrderId++, customer.getKey(), product.id(), quantity, product.price(),
+                    overBalance));
+        }
+        return basket;
+    }
+
+    private Snapshot.ProductState nextProduct() {
+        if (cold.isEmpty() || (!hot.isEmpty() && random.nextDouble() < mix.getHotShare())) {
+            return hot.get(random.nextInt(hot.size()));
+        }
+        return cold.get(random.nextInt(cold.size()));
+    }
+
+    // the smallest quantity whose total is more than the whole balance, but no more than the stock, so the
+    // order gets past product and is refused by payment
+    private int quantityOver(Money balance, Snapshot.ProductState product) {
+        if (product.price().getMinorUnits() == 0) {
+            return 1;
+        }
+        long quantity = balance.getMinorUnits() / product.price().getMinorUnits() + 1;
+        return (int) Math.max(1, Math.min(quantity, product.stock()));
+    }
+
+}
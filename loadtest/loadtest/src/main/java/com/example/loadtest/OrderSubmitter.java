@@ -0,0 +1,99 @@
+package com.example.loadtest;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+// hands a generated order to the system under test, as a Kafka message or an HTTP POST
+public abstract class OrderSubmitter implements AutoCloseable {
+
+    private final ObjectMapper objectMapper;
+
+    protected OrderSubmitter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static OrderSubmitter create(LoadTestProperties properties, ObjectMapper objectMapper) {
+        return switch (properties.getSubmit().getMode()) {
+            case "kafka" -> new KafkaSubmitter(properties, objectMapper);
+            case "http" -> new HttpSubmitter(properties, objectMapper);
+            default -> throw new IllegalArgumentException("Unknown loadtest.submit.mode: "
+                    + properties.getSubmit().getMode());
+        };
+    }
+
+    public abstract Mono<Void> submit(PlannedOrder order);
+
+    @Override
+    public void close() {
+    }
+
+    protected OrdersDTOSend toMessage(PlannedOrder order) {
+        return objectMapper.convertValue(Map.of(
+                "id", order.orderId(),
+                "ordersDTO", Map.of(
+                        "customer_id", order.customerId(),
+                        "orderItems", Map.of(
+                                "product_id", order.productId(),
+                                "quantity", order.quantity()))),
+                OrdersDTOSend.class);
+    }
+
+    private static class KafkaSubmitter extends OrderSubmitter {
+
+        private final KafkaTemplate<String, Object> kafkaTemplate;
+
+        private final String topic;
+
+        KafkaSubmitter(LoadTestProperties properties, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(Map.of(
+                    ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.getKafkaBootstrapServers(),
+                    ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                    ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class,
+                    ProducerConfig.LINGER_MS_CONFIG, 5)));
+            this.topic = properties.getSubmit().getTopic();
+        }
+
+        @Override
+        public Mono<Void> submit(PlannedOrder order) {
+            return Mono.fromFuture(() -> kafkaTemplate.send(topic, String.valueOf(order.orderId()), toMessage(order)))
+                    .then();
+        }
+
+        @Override
+        public void close() {
+            kafkaTemplate.destroy();
+        }
+    }
+
+    private static class HttpSubmitter extends OrderSubmitter {
+
+        private final WebClient webClient;
+
+        HttpSubmitter(LoadTestProperties properties, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.webClient = WebClient.create(properties.getSubmit().getUrl());
+        }
+
+        @Override
+        public Mono<Void> submit(PlannedOrder order) {
+            return webClient.post()
+                    .bodyValue(toMessage(order))
+                    .retrieve()
+                    .toBodilessEntity()
+                    .then();
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.example.loadtest;
+
+import com.example.DTO.money.Money;
+
+// one generated order line and what the harness expects it to cost
+public record PlannedOrder(long orderId, long customerId, long productId, int quantity, Money price,
+        boolean sizedOverBalance) {
+
+    public Money total() {
+        return price.times(quantity);
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.example.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+import com.example.DTO.money.Money;
+
+// stock of every product and balance of every customer at one point in time
+public record Snapshot(List<ProductState> products, Map<Long, Money> balances) {
+
+    public record ProductState(Long id, Money price, int stock) {
+    }
+
+}
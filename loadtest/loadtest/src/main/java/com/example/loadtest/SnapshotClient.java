@@ -0,0 +1,67 @@
+package com.example.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.DTO.money.Money;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import lombok.extern.slf4j.Slf4j;
+
+// reads every product and balance through the keyset paged endpoints, before and after a run
+@Slf4j
+public class SnapshotClient {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final WebClient productClient;
+
+    private final WebClient paymentClient;
+
+    public SnapshotClient(LoadTestProperties properties) {
+        this.productClient = WebClient.create(properties.getProductUrl());
+        this.paymentClient = WebClient.create(properties.getPaymentUrl());
+    }
+
+    public Snapshot take() {
+        List<Snapshot.ProductState> products = new ArrayList<>();
+        readAll(productClient, "/product/page", item -> products.add(new Snapshot.ProductState(
+                item.path("id").asLong(),
+                Money.ofMajor(item.path("price").decimalValue()),
+                item.path("stock_quantity").asInt())));
+
+        Map<Long, Money> balances = new LinkedHashMap<>();
+        readAll(paymentClient, "/balance/page", item -> balances.put(
+                item.path("customer_id").asLong(),
+                Money.ofMajor(item.path("amount").decimalValue())));
+
+        log.info("Snapshot: {} product(s), {} balance(s)", products.size(), balances.size());
+        return new Snapshot(products, balances);
+    }
+
+    private void readAll(WebClient client, String path, Consumer<JsonNode> item) {
+        String cursor = null;
+        do {
+            String after = cursor;
+            JsonNode page = client.get()
+                    .uri(uri -> {
+                        uri.path(path).queryParam("size", PAGE_SIZE);
+                        if (after != null) {
+                            uri.queryParam("cursor", after);
+                        }
+                        return uri.build();
+                    })
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block();
+            page.path("items").forEach(item);
+            cursor = page.path("nextCursor").isTextual() ? page.path("nextCursor").asText() : null;
+        } while (cursor != null);
+    }
+
+}
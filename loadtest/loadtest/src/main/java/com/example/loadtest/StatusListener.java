@@ -0,0 +1,125 @@
+package com.example.loadtest;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+
+import com.example.DTO.money.Money;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+// follows order-update and order-update-fail in its own consumer group, the same messages the order
+// service applies, and reports every status to the recorder
+@Slf4j
+public class StatusListener implements AutoCloseable {
+
+    private static final String ORDER_UPDATE = "order-update";
+
+    private static final String ORDER_UPDATE_FAIL = "order-update-fail";
+
+    private final KafkaConsumer<String, String> consumer;
+
+    private final ObjectMapper objectMapper;
+
+    private final LoadRecorder recorder;
+
+    private final long firstOrderId;
+
+    private final CountDownLatch assigned = new CountDownLatch(1);
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    public StatusListener(LoadTestProperties properties, ObjectMapper objectMapper, LoadRecorder recorder) {
+        this.objectMapper = objectMapper;
+        this.recorder = recorder;
+        this.firstOrderId = properties.getFirstOrderId();
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, properties.getKafkaBootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, "loadtest-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false",
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class));
+        this.thread = new Thread(this::poll, "loadtest-status-listener");
+    }
+
+    // returns once the partitions are assigned, so no status of this run can be missed
+    public void start() throws InterruptedException {
+        thread.start();
+        if (!assigned.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Status topics were not assigned within 30s");
+        }
+    }
+
+    private void poll() {
+        consumer.subscribe(List.of(ORDER_UPDATE, ORDER_UPDATE_FAIL), new ConsumerRebalanceListener() {
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                consumer.seekToEnd(partitions);
+                assigned.countDown();
+            }
+
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            }
+        });
+        try {
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                    handle(record);
+                }
+            }
+        } catch (WakeupException e) {
+            // closing
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void handle(ConsumerRecord<String, String> record) {
+        try {
+            JsonNode message = objectMapper.readTree(record.value());
+            if (message.path("id").asLong() < firstOrderId) {
+                // an order the harness did not generate
+                return;
+            }
+            JsonNode order = message.path("ordersDTO");
+            boolean failed = ORDER_UPDATE_FAIL.equals(record.topic())
+                    || "FAILED".equals(order.path("order_status").asText());
+            Money total = order.path("total_amount").isNumber()
+                    ? Money.ofMajor(order.path("total_amount").decimalValue())
+                    : Money.ZERO;
+            recorder.status(message.path("id").asLong(),
+                    failed ? LoadRecorder.Outcome.FAILED : LoadRecorder.Outcome.COMPLETED,
+                    failed ? Money.ZERO : total);
+        } catch (Exception e) {
+            log.warn("Unreadable status message at {}-{}@{}: {}", record.topic(), record.partition(),
+                    record.offset(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.DTO.money.Money;
+
+public class InvariantCheckerTest {
+
+    private final InvariantChecker checker = new InvariantChecker();
+
+    private final Money price = Money.ofMinor(1000);
+
+    private Snapshot snapshot(int stock, long balanceMinor) {
+        return new Snapshot(List.of(new Snapshot.ProductState(1L, price, stock)),
+                Map.of(7L, Money.ofMinor(balanceMinor)));
+    }
+
+    private LoadRecorder.Result completed(long orderId, int quantity) {
+        PlannedOrder order = new PlannedOrder(orderId, 7L, 1L, quantity, price, false);
+        return new LoadRecorder.Result(order, LoadRecorder.Outcome.COMPLETED, order.total());
+    }
+
+    @Test
+    void consistentRunHasNoViolations() {
+        List<String> violations = checker.check(snapshot(10, 10_000), snapshot(7, 7_000),
+                Map.of(1L, completed(1L, 2), 2L, completed(2L, 1)), 0);
+
+        assertTrue(violations.isEmpty(), violations.toString());
+    }
+
+    @Test
+    void reportsOversellAndDoubleCharge() {
+        // two units sold but only one taken from the stock, and the customer paid twice
+        List<String> violations = checker.check(snapshot(10, 10_000), snapshot(9, 6_000),
+                Map.of(1L, completed(1L, 2)), 0);
+
+        assertEquals(2, violations.size());
+        assertTrue(violations.get(0).startsWith("OVERSELL"));
+        assertTrue(violations.get(1).startsWith("DOUBLE CHARGE"));
+    }
+
+}
@@ -1,10 +1,16 @@
 package com.example.orchestrator;
 
+import org.slf4j.Marker;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.example.DTO.balance.BalanceDTO;
 import com.example.DTO.order.OrdersDTOSend;
-import com.example.orchestrator.kafka.OrchestratorProducer;
+import com.example.enume.OrderStatusEnum;
+import com.example.logging.LogSampling;
+import com.example.orchestrator.metrics.SagaMetrics;
+import com.example.orchestrator.resilience.DownstreamGuard;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -13,93 +19,151 @@ import reactor.core.publisher.Mono;
 @Service
 public class OrchestratorService {
 
-    private final WebClient webClient;
+    // success responses are logged 1 in logging.sampling.success-every per path, failures always
+    private static final Marker STOCK_CHECKED = LogSampling.path("orchestrator.stock-checked");
 
-    private final OrchestratorProducer orchestratorProducer;
+    private static final Marker BALANCE_CHECKED = LogSampling.path("orchestrator.balance-checked");
 
-    public OrchestratorService(WebClient webClient, OrchestratorProducer orchestratorProducer) {
-        this.webClient = WebClient.builder()
-                // .baseUrl("http://localhost:8082")
-                .build();
-        this.orchestratorProducer = orchestratorProducer;
+    private static final Marker STOCK_RE_ADDED = LogSampling.path("orchestrator.stock-re-added");
+
+    private final WebClient productWebClient;
+
+    private final WebClient paymentWebClient;
+
+    // every call goes through the guard of its downstream, which fails it fast when that service is unhealthy
+    private final DownstreamGuard productGuard;
+
+    private final DownstreamGuard paymentGuard;
+
+    private final SagaMetrics sagaMetrics;
+
+    public OrchestratorService(@Qualifier("productWebClient") WebClient productWebClient,
+            @Qualifier("paymentWebClient") WebClient paymentWebClient,
+            @Qualifier("productGuard") DownstreamGuard productGuard,
+            @Qualifier("paymentGuard") DownstreamGuard paymentGuard,
+            SagaMetrics sagaMetrics) {
+        this.productWebClient = productWebClient;
+        this.paymentWebClient = paymentWebClient;
+        this.productGuard = productGuard;
+        this.paymentGuard = paymentGuard;
+        this.sagaMetrics = sagaMetrics;
     }
 
     // using webclient to check and deduct the stock
+    // the saga engine decides what happens next, this only performs the call
     public Mono<OrdersDTOSend> checkAndDeductStock(OrdersDTOSend ordersDTO) {
-        log.info("Sending it to product to check stock" + ordersDTO);
+        log.debug("Sending order {} to product to check stock", ordersDTO.getId());
 
-        Mono<OrdersDTOSend> ordersDTOSend = webClient
+        Mono<OrdersDTOSend> ordersDTOSend = callProduct(SagaMetrics.STOCK_CHECK, productWebClient
                 .post()
-                .uri("http://localhost:8082/inventory/check-deduct-stock")
+                .uri("/inventory/check-deduct-stock")
                 .bodyValue(ordersDTO)
                 .retrieve()
-                .bodyToMono(OrdersDTOSend.class)
-                .doOnSuccess(response -> {
-                    log.info("Received response from product service: {}", response);
-                    if ("FAILED".equals(response.getOrdersDTO().getOrder_status())) {
-                        orchestratorProducer.sendToOrderUpdateFail(response);
-                    } else if ("PROCESSING".equals(response.getOrdersDTO().getOrder_status())) {
-                        log.info("Product (OK) --> payment check");
-                        checkAccountIdBalance(response).subscribe();
-                    }
-                })
-                .doOnError(error -> log.error("Error occurred: {}", error.getMessage()));
+                .bodyToMono(OrdersDTOSend.class))
+                .doOnSuccess(response -> logResponse(STOCK_CHECKED, ordersDTO.getId(), statusOf(response),
+                        "Received response from product service"))
+                .doOnError(error -> logError(ordersDTO.getId(), error));
 
         return ordersDTOSend;
     }
 
+    // read-only stock check, answers with the price and total but deducts nothing
+    public Mono<OrdersDTOSend> checkAvailability(OrdersDTOSend ordersDTO) {
+        return callProduct(SagaMetrics.AVAILABILITY_CHECK, productWebClient
+                .post()
+                .uri("/inventory/check-availability")
+                .bodyValue(ordersDTO)
+                .retrieve()
+                .bodyToMono(OrdersDTOSend.class))
+                .doOnError(error -> logError(ordersDTO.getId(), error));
+    }
+
+    // read-only balance of the customer
+    public Mono<BalanceDTO> getAvailableBalance(Long customerId) {
+        return callPayment(SagaMetrics.BALANCE_LOOKUP, paymentWebClient
+                .get()
+                .uri("/balance/available/{customerId}", customerId)
+                .retrieve()
+                .bodyToMono(BalanceDTO.class))
+                .doOnError(error -> log.atError().addKeyValue("customerId", customerId)
+                        .log("Error occurred: {}", error.getMessage()));
+    }
+
     // using weblient to check and deduct account balance
     public Mono<OrdersDTOSend> checkAccountIdBalance(OrdersDTOSend ordersDTO) {
-        log.info("Sending it to payment to check customer's balance and deduct the balance for id: "
-                + ordersDTO.getOrdersDTO().getCustomer_id());
+        log.debug("Sending order {} to payment to check and deduct the balance of customer {}",
+                ordersDTO.getId(), ordersDTO.getOrdersDTO().getCustomer_id());
 
-        Mono<OrdersDTOSend> ordersDTOSend = webClient
+        Mono<OrdersDTOSend> ordersDTOSend = callPayment(SagaMetrics.BALANCE_CHECK, paymentWebClient
                 .post()
-                .uri("http://localhost:8081/balance/check-balance")
+                .uri("/balance/check-balance")
                 .bodyValue(ordersDTO)
                 .retrieve()
-                .bodyToMono(OrdersDTOSend.class)
-                .doOnSuccess(response -> {
-                    log.info("Received response from payment service: {}", response);
-                    if ("FAILED".equals(response.getOrdersDTO().getOrder_status())) {
-                        // send the message to order to change the order status using kafka
-                        // send the message to payment to add transaction details
-                        // send the message to product to re add the deducted product using webclient
-                        log.info("Received response from payment service(FAIL): {}", response);
-                        orchestratorProducer.sendToOrderUpdateFail(response); // kafka to order
-                        paymentFailReAddStock(response).subscribe(); // webclient to product
-                        //paymentFailTransactionDetails(response).subscribe();//webclient to payment 
-
-                    } else {
-                        log.info("\nReceived response from payment(SUCCESS)\n");
-                        // sending the message to order to change the order status to COMPLETED
-                        orchestratorProducer.sendToOrderUpdate(response);
-                        // sending the message to payment to add the transaction details with web client
-                    }
-                })
-                .doOnError(error -> log.error("Error occurred: {}", error.getMessage()));
+                .bodyToMono(OrdersDTOSend.class))
+                .doOnSuccess(response -> logResponse(BALANCE_CHECKED, ordersDTO.getId(), statusOf(response),
+                        "Received response from payment service"))
+                .doOnError(error -> logError(ordersDTO.getId(), error));
 
         return ordersDTOSend;
     }
 
+    // the order is paid, product keeps its held stock for good instead of letting the hold expire
+    public Mono<OrdersDTOSend> confirmStock(OrdersDTOSend ordersDTO) {
+        log.debug("Sending order {} to product to confirm the held stock", ordersDTO.getId());
+
+        return callProduct(SagaMetrics.STOCK_CONFIRM, productWebClient
+                .post()
+                .uri("/inventory/confirm-stock")
+                .bodyValue(ordersDTO)
+                .retrieve()
+                .bodyToMono(OrdersDTOSend.class))
+                .doOnError(error -> logError(ordersDTO.getId(), error));
+    }
+
     public Mono<OrdersDTOSend> paymentFailReAddStock(OrdersDTOSend ordersDTO) {
-        log.info("Sending it to product to re add stock on product for product id: "
-                + ordersDTO.getOrdersDTO().getOrderItems().getProduct_id());
+        log.debug("Sending order {} to product to re add stock for product id: {}",
+                ordersDTO.getId(), ordersDTO.getOrdersDTO().getOrderItems().getProduct_id());
 
-        Mono<OrdersDTOSend> ordersDTOSend = webClient
+        Mono<OrdersDTOSend> ordersDTOSend = callProduct(SagaMetrics.COMPENSATION, productWebClient
                 .post()
-                .uri("http://localhost:8082/inventory/re-add-stock")
+                .uri("/inventory/re-add-stock")
                 .bodyValue(ordersDTO)
                 .retrieve()
-                .bodyToMono(OrdersDTOSend.class)
-                .doOnSuccess(response -> {
-                    log.info("Received response from payment service(FAILED): {}", response);
-                })
-                .doOnError(error -> log.error("Error occurred: {}", error.getMessage()));
+                .bodyToMono(OrdersDTOSend.class))
+                .doOnSuccess(response -> logResponse(STOCK_RE_ADDED, ordersDTO.getId(), statusOf(response),
+                        "Received response from product service(PAYMENT FAILED)"))
+                .doOnError(error -> logError(ordersDTO.getId(), error));
 
         return ordersDTOSend;
     }
 
+    // order id and status as event fields instead of the whole DTO in the message
+    private void logResponse(Marker successPath, Long orderId, String status, String message) {
+        if (OrderStatusEnum.FAILED.name().equals(status)) {
+            log.atInfo().addKeyValue("orderId", orderId).addKeyValue("status", status).log(message);
+        } else {
+            log.atInfo().addMarker(successPath).addKeyValue("orderId", orderId).addKeyValue("status", status)
+                    .log(message);
+        }
+    }
+
+    private void logError(Long orderId, Throwable error) {
+        log.atError().addKeyValue("orderId", orderId).log("Error occurred: {}", error.getMessage());
+    }
+
+    private String statusOf(OrdersDTOSend response) {
+        return response == null || response.getOrdersDTO() == null ? null : response.getOrdersDTO().getOrder_status();
+    }
+
+    // guard first, so a call rejected by the circuit or the limit is timed as a failed step too
+    private <T> Mono<T> callProduct(String step, Mono<T> call) {
+        return sagaMetrics.step(step, productGuard.protect(call));
+    }
+
+    private <T> Mono<T> callPayment(String step, Mono<T> call) {
+        return sagaMetrics.step(step, paymentGuard.protect(call));
+    }
+
 }
 
 // public Mono<OrdersDTOSend> checkAndDeductStock(OrdersDTOSend ordersDTO) {
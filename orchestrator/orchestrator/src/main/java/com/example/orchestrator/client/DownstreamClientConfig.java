@@ -0,0 +1,86 @@
+package com.example.orchestrator.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.codec.WireFormat;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+// one WebClient per downstream, each with its own connection pool so a slow product service
+// cannot take the connections payment calls need. both start from the Boot managed builder, which
+// carries the observation registry: http.client.requests timers and trace headers on every call
+@Configuration
+@EnableConfigurationProperties(DownstreamClientsProperties.class)
+public class DownstreamClientConfig {
+
+    @Bean
+    public WebClient productWebClient(WebClient.Builder builder, DownstreamClientsProperties properties) {
+        return buildWebClient(builder.clone(), "product", properties.getProduct());
+    }
+
+    @Bean
+    public WebClient paymentWebClient(WebClient.Builder builder, DownstreamClientsProperties properties) {
+        return buildWebClient(builder.clone(), "payment", properties.getPayment());
+    }
+
+    private WebClient buildWebClient(WebClient.Builder builder, String name, DownstreamProperties properties) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxLifeTime(properties.getMaxLifeTime())
+                .evictInBackground(properties.getEvictInBackground())
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout())
+                // handlers added to a connection are removed when it goes back to the pool, so they are added
+                // for every request: the write timeout while the request is sent, the read timeout between
+                // the chunks of the response body
+                .doOnRequest((request, connection) -> connection
+                        .addHandlerLast(new WriteTimeoutHandler(
+                                properties.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                .doOnResponse((response, connection) -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(
+                                properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+        if (properties.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+
+        builder.baseUrl(properties.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().maxInMemorySize(properties.getMaxInMemorySize());
+                    Jackson2CborDecoder cborDecoder = new Jackson2CborDecoder(WireFormat.cborMapper());
+                    cborDecoder.setMaxInMemorySize(properties.getMaxInMemorySize());
+                    codecs.customCodecs().register(cborDecoder);
+                    codecs.customCodecs().register(new Jackson2CborEncoder(WireFormat.cborMapper()));
+                });
+
+        if (WireFormat.CBOR.equalsIgnoreCase(properties.getWireFormat())) {
+            builder.defaultHeader(HttpHeaders.CONTENT_TYPE, WireFormat.APPLICATION_CBOR)
+                    .defaultHeader(HttpHeaders.ACCEPT, WireFormat.APPLICATION_CBOR, MediaType.APPLICATION_JSON_VALUE);
+        }
+        return builder.build();
+    }
+
+}
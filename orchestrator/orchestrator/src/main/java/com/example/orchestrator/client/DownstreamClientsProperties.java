@@ -0,0 +1,16 @@
+package com.example.orchestrator.client;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+// orchestrator.downstream.product.* and orchestrator.downstream.payment.*
+@Data
+@ConfigurationProperties(prefix = "orchestrator.downstream")
+public class DownstreamClientsProperties {
+
+    private DownstreamProperties product = new DownstreamProperties("http://localhost:8082");
+
+    private DownstreamProperties payment = new DownstreamProperties("http://localhost:8081");
+
+}
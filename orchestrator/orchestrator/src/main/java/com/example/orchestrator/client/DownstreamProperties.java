@@ -0,0 +1,69 @@
+package com.example.orchestrator.client;
+
+import java.time.Duration;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// connection pool and timeout settings for one downstream service
+@Data
+@NoArgsConstructor
+public class DownstreamProperties {
+
+    private String baseUrl;
+
+    private int maxConnections = 200;
+
+    // callers waiting for a free connection, beyond this they fail instead of queueing
+    private int pendingAcquireMaxCount = 400;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+
+    private Duration evictInBackground = Duration.ofSeconds(30);
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    private Duration writeTimeout = Duration.ofSeconds(5);
+
+    private Duration responseTimeout = Duration.ofSeconds(3);
+
+    private int maxInMemorySize = 256 * 1024;
+
+    // h2c (cleartext HTTP/2), falls back to HTTP/1.1 when the server does not upgrade
+    private boolean http2 = false;
+
+    // json or cbor request bodies; the answer is asked for in the same format with JSON as fallback
+    private String wireFormat = "json";
+
+    // bulkhead: hard cap on concurrent calls, the adaptive limit moves between minConcurrency and this
+    private int maxConcurrentCalls = 100;
+
+    private int minConcurrency = 4;
+
+    // calls slower than this shrink the adaptive limit like a failure does
+    private Duration latencyTarget = Duration.ofMillis(250);
+
+    private double limitBackoffRatio = 0.9;
+
+    // circuit breaker over the outcome of the last slidingWindowSize calls
+    private int slidingWindowSize = 50;
+
+    private int minimumCalls = 20;
+
+    private int failureRateThreshold = 50;
+
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    private int halfOpenProbes = 5;
+
+    public DownstreamProperties(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+}
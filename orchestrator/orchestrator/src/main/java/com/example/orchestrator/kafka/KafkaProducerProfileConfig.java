@@ -0,0 +1,61 @@
+package com.example.orchestrator.kafka;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.support.ProducerListener;
+
+import com.example.kafka.ProducerProfile;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// applies the shared producer profile to the producer factory and checks the result of every send
+// made through the KafkaTemplate, so OrchestratorProducer does not have to handle the futures itself
+@Slf4j
+@Configuration
+public class KafkaProducerProfileConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "kafka.producer")
+    public ProducerProfile producerProfile() {
+        return new ProducerProfile();
+    }
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(ProducerProfile producerProfile) {
+        return producerFactory -> producerFactory.updateConfigs(producerProfile.toConfig());
+    }
+
+    @Bean
+    public ProducerListener<Object, Object> producerListener(MeterRegistry registry) {
+        return new ProducerListener<>() {
+
+            @Override
+            public void onSuccess(ProducerRecord<Object, Object> record, RecordMetadata metadata) {
+                long latency = System.currentTimeMillis() - metadata.timestamp();
+                // record creation to broker acknowledgement, per topic
+                Timer.builder("kafka.producer.ack")
+                        .tag("topic", metadata.topic())
+                        .publishPercentileHistogram()
+                        .register(registry)
+                        .record(latency, TimeUnit.MILLISECONDS);
+                log.debug("Sent {} to {}-{}@{} in {} ms", record.key(), metadata.topic(), metadata.partition(),
+                        metadata.offset(), latency);
+            }
+
+            @Override
+            public void onError(ProducerRecord<Object, Object> record, RecordMetadata metadata,
+                    Exception exception) {
+                log.error("Failed to send {} to {}: {}", record.key(), record.topic(), exception.getMessage());
+            }
+        };
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.example.orchestrator.kafka;
+
+import java.time.Duration;
+
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+import com.example.orchestrator.saga.SagaEngine;
+
+import lombok.extern.slf4j.Slf4j;
+
+// new orders from Kafka, keyed by order id. the listener only waits until the saga is in the saga log,
+// from there a restart resumes it, so one partition is not held up by the sagas it started
+@Slf4j
+@Service
+public class OrchestratorConsumer {
+
+    private static final Duration ADMIT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final SagaEngine sagaEngine;
+
+    public OrchestratorConsumer(SagaEngine sagaEngine) {
+        this.sagaEngine = sagaEngine;
+    }
+
+    @KafkaListener(topics = SagaTopics.ORDER_CREATED, groupId = "orchestrator")
+    public void consumeOrderCreated(OrdersDTOSend message) {
+        log.debug("Order {} received for the saga", message.getId());
+        sagaEngine.admit(message).block(ADMIT_TIMEOUT);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.example.orchestrator.kafka;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+
+// the commands of the Kafka saga mode. reserve-stock is keyed by product id and debit-balance by customer
+// id, so one product (or customer) is always worked on by the same consumer, in command order.
+// confirm-stock only touches the holds of its own order and is keyed by order id
+@Service
+@ConditionalOnProperty(name = "orchestrator.saga.transport", havingValue = "kafka")
+public class SagaCommandProducer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public SagaCommandProducer(KafkaTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public CompletableFuture<SendResult<String, Object>> sendReserveStock(OrdersDTOSend ordersDTO) {
+        return kafkaTemplate.send(SagaTopics.RESERVE_STOCK,
+                String.valueOf(ordersDTO.getOrdersDTO().getOrderItems().getProduct_id()), ordersDTO);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> sendDebitBalance(OrdersDTOSend ordersDTO) {
+        return kafkaTemplate.send(SagaTopics.DEBIT_BALANCE,
+                String.valueOf(ordersDTO.getOrdersDTO().getCustomer_id()), ordersDTO);
+    }
+
+    public CompletableFuture<SendResult<String, Object>> sendConfirmStock(OrdersDTOSend ordersDTO) {
+        return kafkaTemplate.send(SagaTopics.CONFIRM_STOCK, String.valueOf(ordersDTO.getId()), ordersDTO);
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.example.orchestrator.kafka;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+import com.example.orchestrator.saga.PendingReplies;
+
+// hands the replies of product and payment to the sagas waiting for them. every orchestrator instance
+// reads all replies in a group of its own and keeps those of its own sagas
+@Service
+@ConditionalOnProperty(name = "orchestrator.saga.transport", havingValue = "kafka")
+public class SagaReplyConsumer {
+
+    private final PendingReplies pendingReplies;
+
+    public SagaReplyConsumer(PendingReplies pendingReplies) {
+        this.pendingReplies = pendingReplies;
+    }
+
+    @KafkaListener(topics = SagaTopics.RESERVE_STOCK_REPLY,
+            groupId = "${orchestrator.saga.reply-group:orchestrator-replies-${random.uuid}}")
+    public void consumeStockReply(OrdersDTOSend reply) {
+        pendingReplies.complete(SagaTopics.RESERVE_STOCK_REPLY, reply);
+    }
+
+    @KafkaListener(topics = SagaTopics.DEBIT_BALANCE_REPLY,
+            groupId = "${orchestrator.saga.reply-group:orchestrator-replies-${random.uuid}}")
+    public void consumeBalanceReply(OrdersDTOSend reply) {
+        pendingReplies.complete(SagaTopics.DEBIT_BALANCE_REPLY, reply);
+    }
+
+    @KafkaListener(topics = SagaTopics.CONFIRM_STOCK_REPLY,
+            groupId = "${orchestrator.saga.reply-group:orchestrator-replies-${random.uuid}}")
+    public void consumeConfirmReply(OrdersDTOSend reply) {
+        pendingReplies.complete(SagaTopics.CONFIRM_STOCK_REPLY, reply);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.example.orchestrator.metrics;
+
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.stereotype.Component;
+
+import com.example.metrics.MonoTimer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+// saga.step{step} times every step of an order (stock check, balance check, stock confirm,
+// compensation, kafka publish),
+// saga.duration{result} the whole saga from submit to its final state
+@Component
+public class SagaMetrics {
+
+    public static final String STOCK_CHECK = "stock-check";
+
+    public static final String AVAILABILITY_CHECK = "availability-check";
+
+    public static final String BALANCE_LOOKUP = "balance-lookup";
+
+    public static final String BALANCE_CHECK = "balance-check";
+
+    public static final String STOCK_CONFIRM = "stock-confirm";
+
+    public static final String COMPENSATION = "compensation";
+
+    public static final String KAFKA_PUBLISH = "kafka-publish";
+
+    private final MeterRegistry registry;
+
+    public SagaMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> Mono<T> step(String step, Mono<T> call) {
+        return MonoTimer.time(registry, "saga.step", Tags.of("step", step), call);
+    }
+
+    public Timer.Sample startSaga() {
+        return Timer.start(registry);
+    }
+
+    public void stopSaga(Timer.Sample sample, String result) {
+        sample.stop(Timer.builder("saga.duration")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public <T> void gauge(String name, Tags tags, T target, ToDoubleFunction<T> value) {
+        Gauge.builder(name, target, value).tags(tags).register(registry);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.example.orchestrator.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// AIMD concurrency limit for one downstream: every call that answers within the latency target raises
+// the limit by 1/limit (about +1 per round of calls), a slow or failed call multiplies it by backoffRatio.
+// one spike makes every call in flight slow at once, so the limit is decreased at most once per latency
+// target: the slow calls after a decrease that fall in the same window are the same congestion event.
+// the limit never leaves [minLimit, maxLimit], where maxLimit is the bulkhead size
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyTargetNanos;
+
+    private final double backoffRatio;
+
+    private final LongSupplier clock;
+
+    private double limit;
+
+    private int inFlight;
+
+    private boolean decreased;
+
+    private long decreasedAt;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, Duration latencyTarget, double backoffRatio) {
+        this(minLimit, maxLimit, latencyTarget, backoffRatio, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, Duration latencyTarget, double backoffRatio,
+            LongSupplier clock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.clock = clock;
+        this.limit = maxLimit;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void onSuccess(long latencyNanos) {
+        inFlight--;
+        if (latencyNanos > latencyTargetNanos) {
+            decrease();
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    public synchronized void onFailure() {
+        inFlight--;
+        decrease();
+    }
+
+    // a call that ended without telling anything about the downstream
+    public synchronized void onIgnored() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void decrease() {
+        long now = clock.getAsLong();
+        if (decreased && now - decreasedAt < latencyTargetNanos) {
+            return;
+        }
+        decreased = true;
+        decreasedAt = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+}
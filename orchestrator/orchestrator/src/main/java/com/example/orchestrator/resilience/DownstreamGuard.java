@@ -0,0 +1,83 @@
+package com.example.orchestrator.resilience;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+// circuit breaker plus bulkhead / adaptive concurrency limit around every call to one downstream.
+// a rejected call fails at once with DownstreamRejectedException instead of queueing on a slow service
+@Slf4j
+public class DownstreamGuard {
+
+    private final String name;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public DownstreamGuard(String name, CircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter limiter) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.limiter = limiter;
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            long permit = circuitBreaker.tryAcquire();
+            if (permit == CircuitBreaker.REJECTED) {
+                return Mono.error(new DownstreamRejectedException(name, "circuit open"));
+            }
+            if (!limiter.tryAcquire()) {
+                circuitBreaker.onIgnored(permit);
+                return Mono.error(new DownstreamRejectedException(name,
+                        "concurrency limit " + limiter.getLimit() + " reached"));
+            }
+
+            long start = System.nanoTime();
+            Throwable[] failure = new Throwable[1];
+            return call
+                    .doOnError(error -> failure[0] = error)
+                    .doFinally(signal -> complete(permit, signal, failure[0], System.nanoTime() - start));
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return limiter.getInFlight();
+    }
+
+    private void complete(long permit, SignalType signal, Throwable error, long latencyNanos) {
+        if (signal == SignalType.CANCEL) {
+            limiter.onIgnored();
+            circuitBreaker.onIgnored(permit);
+        } else if (error == null || isClientError(error)) {
+            // a 4xx is the caller's problem, the downstream answered fine
+            limiter.onSuccess(latencyNanos);
+            circuitBreaker.onSuccess(permit);
+        } else {
+            limiter.onFailure();
+            circuitBreaker.onFailure(permit);
+            if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                log.warn("Circuit for {} is open after: {}", name, error.getMessage());
+            }
+        }
+    }
+
+    private boolean isClientError(Throwable error) {
+        return error instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.example.orchestrator.resilience;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.orchestrator.client.DownstreamClientsProperties;
+import com.example.orchestrator.client.DownstreamProperties;
+import com.example.orchestrator.metrics.SagaMetrics;
+
+import io.micrometer.core.instrument.Tags;
+
+// one guard per downstream, so an unhealthy product service does not use up the budget of payment calls
+@Configuration
+public class DownstreamGuardConfig {
+
+    @Bean
+    public DownstreamGuard productGuard(DownstreamClientsProperties properties, SagaMetrics sagaMetrics) {
+        return buildGuard("product", properties.getProduct(), sagaMetrics);
+    }
+
+    @Bean
+    public DownstreamGuard paymentGuard(DownstreamClientsProperties properties, SagaMetrics sagaMetrics) {
+        return buildGuard("payment", properties.getPayment(), sagaMetrics);
+    }
+
+    private DownstreamGuard buildGuard(String name, DownstreamProperties properties, SagaMetrics sagaMetrics) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(
+                properties.getSlidingWindowSize(),
+                properties.getMinimumCalls(),
+                properties.getFailureRateThreshold(),
+                properties.getOpenDuration(),
+                properties.getHalfOpenProbes());
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                properties.getMinConcurrency(),
+                properties.getMaxConcurrentCalls(),
+                properties.getLatencyTarget(),
+                properties.getLimitBackoffRatio());
+        DownstreamGuard guard = new DownstreamGuard(name, circuitBreaker, limiter);
+
+        Tags tags = Tags.of("downstream", name);
+        sagaMetrics.gauge("downstream.concurrency.limit", tags, guard, DownstreamGuard::getLimit);
+        sagaMetrics.gauge("downstream.in.flight", tags, guard, DownstreamGuard::getInFlight);
+        // 0 closed, 1 open, 2 half open
+        sagaMetrics.gauge("downstream.circuit.state", tags, guard, g -> g.getState().ordinal());
+        return guard;
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.example.orchestrator.resilience;
+
+// a call that was not sent because the downstream's circuit is open or its concurrency limit is reached
+public class DownstreamRejectedException extends RuntimeException {
+
+    public DownstreamRejectedException(String downstream, String reason) {
+        super(downstream + " call rejected: " + reason, null, false, false);
+    }
+
+}
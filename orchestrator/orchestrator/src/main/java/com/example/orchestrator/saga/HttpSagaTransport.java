@@ -0,0 +1,37 @@
+package com.example.orchestrator.saga;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.orchestrator.OrchestratorService;
+
+import reactor.core.publisher.Mono;
+
+// the default: one guarded http call per step, answered in the same request
+@Component
+@ConditionalOnProperty(name = "orchestrator.saga.transport", havingValue = "http", matchIfMissing = true)
+public class HttpSagaTransport implements SagaTransport {
+
+    private final OrchestratorService orchestratorService;
+
+    public HttpSagaTransport(OrchestratorService orchestratorService) {
+        this.orchestratorService = orchestratorService;
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> reserveStock(OrdersDTOSend ordersDTO) {
+        return orchestratorService.checkAndDeductStock(ordersDTO);
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> debitBalance(OrdersDTOSend ordersDTO) {
+        return orchestratorService.checkAccountIdBalance(ordersDTO);
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> confirmStock(OrdersDTOSend ordersDTO) {
+        return orchestratorService.confirmStock(ordersDTO);
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.example.orchestrator.saga;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+import com.example.orchestrator.kafka.SagaCommandProducer;
+import com.example.orchestrator.metrics.SagaMetrics;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+// every step is a command on Kafka and the saga waits for the reply of its order. product and payment
+// consume at their own rate and a service that is down only delays its partitions, so there is no
+// circuit to open. a reply that does not come within reply-timeout says nothing about the outcome, so the
+// command is sent again and the saga keeps waiting; every command is idempotent per order id and a repeat
+// is answered with the first outcome. with orchestrator.saga.product-releases-stock=true the failure path
+// makes no http call either
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "orchestrator.saga.transport", havingValue = "kafka")
+public class KafkaSagaTransport implements SagaTransport {
+
+    private final SagaCommandProducer sagaCommandProducer;
+
+    private final PendingReplies pendingReplies;
+
+    private final SagaMetrics sagaMetrics;
+
+    private final Duration replyTimeout;
+
+    public KafkaSagaTransport(SagaCommandProducer sagaCommandProducer, PendingReplies pendingReplies,
+            SagaMetrics sagaMetrics, @Value("${orchestrator.saga.reply-timeout:PT30S}") Duration replyTimeout) {
+        this.sagaCommandProducer = sagaCommandProducer;
+        this.pendingReplies = pendingReplies;
+        this.sagaMetrics = sagaMetrics;
+        this.replyTimeout = replyTimeout;
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> reserveStock(OrdersDTOSend ordersDTO) {
+        return request(SagaMetrics.STOCK_CHECK, SagaTopics.RESERVE_STOCK_REPLY, ordersDTO,
+                () -> sagaCommandProducer.sendReserveStock(ordersDTO));
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> debitBalance(OrdersDTOSend ordersDTO) {
+        return request(SagaMetrics.BALANCE_CHECK, SagaTopics.DEBIT_BALANCE_REPLY, ordersDTO,
+                () -> sagaCommandProducer.sendDebitBalance(ordersDTO));
+    }
+
+    @Override
+    public Mono<OrdersDTOSend> confirmStock(OrdersDTOSend ordersDTO) {
+        return request(SagaMetrics.STOCK_CONFIRM, SagaTopics.CONFIRM_STOCK_REPLY, ordersDTO,
+                () -> sagaCommandProducer.sendConfirmStock(ordersDTO));
+    }
+
+    // only a failed send reaches the saga as an error, a missing reply never does
+    private Mono<OrdersDTOSend> request(String step, String replyTopic, OrdersDTOSend ordersDTO,
+            Supplier<CompletableFuture<?>> send) {
+        return sagaMetrics.step(step, pendingReplies.request(replyTopic, ordersDTO.getId(), send, replyTimeout)
+                .retryWhen(Retry.indefinitely()
+                        .filter(TimeoutException.class::isInstance)
+                        .doBeforeRetry(retry -> log.warn("No {} for order {} within {}, sending the command again",
+                                replyTopic, ordersDTO.getId(), replyTimeout))));
+    }
+
+}
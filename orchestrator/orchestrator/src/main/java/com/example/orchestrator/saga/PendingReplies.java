@@ -0,0 +1,61 @@
+package com.example.orchestrator.saga;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.orchestrator.metrics.SagaMetrics;
+
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+// the sagas waiting for a Kafka reply, by reply topic and order id. the waiter is registered before the
+// command is sent, so a reply can never arrive before anybody waits for it. replies nobody waits for
+// (a duplicate, one that came after the timeout, or one for another orchestrator instance) are dropped
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "orchestrator.saga.transport", havingValue = "kafka")
+public class PendingReplies {
+
+    private final Map<String, Sinks.One<OrdersDTOSend>> waiting = new ConcurrentHashMap<>();
+
+    public PendingReplies(SagaMetrics sagaMetrics) {
+        sagaMetrics.gauge("saga.replies.pending", Tags.empty(), waiting, Map::size);
+    }
+
+    // sends the command and completes with its reply, or fails with a TimeoutException after timeout
+    public Mono<OrdersDTOSend> request(String replyTopic, Long orderId, Supplier<CompletableFuture<?>> send,
+            Duration timeout) {
+        return Mono.defer(() -> {
+            String key = key(replyTopic, orderId);
+            Sinks.One<OrdersDTOSend> reply = Sinks.one();
+            waiting.put(key, reply);
+            return Mono.fromFuture(send)
+                    .then(reply.asMono())
+                    .timeout(timeout)
+                    .doFinally(signal -> waiting.remove(key, reply));
+        });
+    }
+
+    public boolean complete(String replyTopic, OrdersDTOSend reply) {
+        Sinks.One<OrdersDTOSend> waiter = waiting.remove(key(replyTopic, reply.getId()));
+        if (waiter == null) {
+            log.debug("No saga waits for {} of order {}", replyTopic, reply.getId());
+            return false;
+        }
+        return waiter.tryEmitValue(reply).isSuccess();
+    }
+
+    private String key(String replyTopic, Long orderId) {
+        return replyTopic + ":" + orderId;
+    }
+
+}
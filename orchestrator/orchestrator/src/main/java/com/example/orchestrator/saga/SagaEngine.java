@@ -0,0 +1,361 @@
+package com.example.orchestrator.saga;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.example.DTO.money.Money;
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.enume.OrderStatusEnum;
+import com.example.orchestrator.OrchestratorService;
+import com.example.orchestrator.kafka.OrchestratorProducer;
+import com.example.orchestrator.metrics.SagaMetrics;
+import com.example.orchestrator.resilience.DownstreamRejectedException;
+
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+// runs every order as one saga: STARTED -> STOCK_RESERVED -> PAYMENT_DONE -> (stock confirmed) COMPLETED,
+// or COMPENSATING -> FAILED when payment is refused after the stock was taken.
+// sagas are pulled from a bounded queue by a single pipeline that caps how many run at once,
+// and every transition is written to the saga log so unfinished sagas are resumed after a restart
+@Slf4j
+@Component
+public class SagaEngine {
+
+    private final OrchestratorService orchestratorService;
+
+    private final SagaTransport sagaTransport;
+
+    private final OrchestratorProducer orchestratorProducer;
+
+    private final SagaLog sagaLog;
+
+    private final SagaMetrics sagaMetrics;
+
+    private final int maxConcurrency;
+
+    private final boolean preValidate;
+
+    private final int compensationRetries;
+
+    private final int stepRetries;
+
+    // product releases the held stock itself on order-update-fail or when the hold expires
+    private final boolean productReleasesStock;
+
+    private final Sinks.Many<SagaTask> queue;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Disposable pipeline;
+
+    public SagaEngine(OrchestratorService orchestratorService, SagaTransport sagaTransport,
+            OrchestratorProducer orchestratorProducer,
+            SagaLog sagaLog, SagaMetrics sagaMetrics,
+            @Value("${orchestrator.saga.max-concurrency:256}") int maxConcurrency,
+            @Value("${orchestrator.saga.max-queued:10000}") int maxQueued,
+            @Value("${orchestrator.saga.pre-validate:false}") boolean preValidate,
+            @Value("${orchestrator.saga.compensation-retries:5}") int compensationRetries,
+            @Value("${orchestrator.saga.step-retries:8}") int stepRetries,
+            @Value("${orchestrator.saga.product-releases-stock:false}") boolean productReleasesStock) {
+        this.orchestratorService = orchestratorService;
+        this.sagaTransport = sagaTransport;
+        this.orchestratorProducer = orchestratorProducer;
+        this.sagaLog = sagaLog;
+        this.sagaMetrics = sagaMetrics;
+        this.maxConcurrency = maxConcurrency;
+        this.preValidate = preValidate;
+        this.compensationRetries = compensationRetries;
+        this.stepRetries = stepRetries;
+        this.productReleasesStock = productReleasesStock;
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(maxQueued));
+        sagaMetrics.gauge("saga.queue.depth", Tags.empty(), this, SagaEngine::getQueueDepth);
+        sagaMetrics.gauge("saga.in.flight", Tags.empty(), this, SagaEngine::getInFlight);
+    }
+
+    @PostConstruct
+    public void start() {
+        pipeline = queue.asFlux()
+                .doOnNext(task -> queued.decrementAndGet())
+                .flatMap(this::run, maxConcurrency)
+                .subscribe();
+
+        // resume before the web server accepts new orders, so nothing is appended while the log is compacted
+        for (SagaLogEntry entry : sagaLog.recover()) {
+            log.info("Resuming saga for order {} from {}", entry.getOrderId(), entry.getState());
+            // a saga the queue cannot take stays in the log as it is and is resumed on the next start
+            offer(new SagaTask(entry.getPayload(), entry.getState(), Sinks.one(), null));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (pipeline != null) {
+            pipeline.dispose();
+        }
+    }
+
+    // entry point for a new order, completes with the final state of the saga
+    public Mono<OrdersDTOSend> submit(OrdersDTOSend ordersDTO) {
+        Timer.Sample sample = sagaMetrics.startSaga();
+        return sagaLog.append(SagaState.STARTED, ordersDTO)
+                .doOnError(error -> sagaMetrics.stopSaga(sample, "ERROR"))
+                .then(Mono.defer(() -> enqueue(new SagaTask(ordersDTO, SagaState.STARTED, Sinks.one(), sample))));
+    }
+
+    // entry point for an order consumed from Kafka: completes once the saga is in the log and queued, so the
+    // offset can be committed while the saga itself runs on in the pipeline, which also times it. an order
+    // the full queue turns away is failed before this completes
+    public Mono<Void> admit(OrdersDTOSend ordersDTO) {
+        Timer.Sample sample = sagaMetrics.startSaga();
+        return sagaLog.append(SagaState.STARTED, ordersDTO)
+                .doOnError(error -> sagaMetrics.stopSaga(sample, "ERROR"))
+                .then(Mono.defer(() -> {
+                    SagaTask task = new SagaTask(ordersDTO, SagaState.STARTED, Sinks.one(), sample);
+                    return offer(task) ? Mono.<Void>empty() : reject(task).then();
+                }));
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    // completes with the final state of the saga
+    private Mono<OrdersDTOSend> enqueue(SagaTask task) {
+        return offer(task) ? task.result().asMono() : reject(task);
+    }
+
+    private boolean offer(SagaTask task) {
+        Sinks.EmitResult result;
+        queued.incrementAndGet();
+        synchronized (queue) {
+            result = queue.tryEmitNext(task);
+        }
+        if (result.isFailure()) {
+            queued.decrementAndGet();
+            log.warn("Saga queue rejected order {} ({}), queue depth: {}",
+                    task.ordersDTO().getId(), result, queued.get());
+            return false;
+        }
+        return true;
+    }
+
+    private Mono<OrdersDTOSend> reject(SagaTask task) {
+        task.ordersDTO().getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+        return fail(task.ordersDTO())
+                .doOnNext(response -> stopTimer(task, SagaState.FAILED.name()))
+                .doOnError(error -> stopTimer(task, "ERROR"));
+    }
+
+    private Mono<OrdersDTOSend> run(SagaTask task) {
+        inFlight.incrementAndGet();
+        Mono<OrdersDTOSend> saga = switch (task.from()) {
+            case STARTED -> preValidate ? preValidate(task.ordersDTO()) : reserveStock(task.ordersDTO());
+            case STOCK_RESERVED -> debitBalance(task.ordersDTO());
+            case PAYMENT_DONE -> complete(task.ordersDTO());
+            case COMPENSATING -> compensate(task.ordersDTO());
+            default -> Mono.just(task.ordersDTO());
+        };
+
+        return saga
+                .doOnNext(response -> {
+                    stopTimer(task, isFailed(response) ? SagaState.FAILED.name() : SagaState.COMPLETED.name());
+                    task.result().tryEmitValue(response);
+                })
+                .doOnError(error -> {
+                    log.error("Saga for order {} stopped: {}", task.ordersDTO().getId(), error.getMessage());
+                    stopTimer(task, "ERROR");
+                    task.result().tryEmitError(error);
+                })
+                // one broken saga must not terminate the pipeline for every other order
+                .onErrorResume(error -> Mono.empty())
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    // asks product for availability and payment for the balance at the same time and fails the order
+    // right away when either says no, so those orders never reserve stock that has to be given back.
+    // the check is advisory: when it cannot be made the order goes through the normal steps
+    private Mono<OrdersDTOSend> preValidate(OrdersDTOSend ordersDTO) {
+        return Mono.zip(
+                orchestratorService.checkAvailability(ordersDTO),
+                orchestratorService.getAvailableBalance(ordersDTO.getOrdersDTO().getCustomer_id()))
+                .map(checks -> {
+                    OrdersDTOSend availability = checks.getT1();
+                    if (isFailed(availability)) {
+                        return false;
+                    }
+                    Money total = Money.ofMajor(availability.getOrdersDTO().getTotal_amount());
+                    Money balance = Money.ofMajor(checks.getT2().getAmount());
+                    return balance != null && total != null && !balance.isLessThan(total);
+                })
+                // any 4xx (unknown customer or product, invalid order) is a no. a downstream behind an open
+                // circuit would only fail the order later, after reserving stock
+                .onErrorResume(error -> isDeclined(error, false), error -> Mono.just(false))
+                .onErrorResume(error -> {
+                    log.warn("Pre-validation for order {} not possible: {}", ordersDTO.getId(), error.getMessage());
+                    return Mono.just(true);
+                })
+                .flatMap(acceptable -> {
+                    if (acceptable) {
+                        return reserveStock(ordersDTO);
+                    }
+                    log.info("Order {} rejected by pre-validation", ordersDTO.getId());
+                    ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                    return fail(ordersDTO);
+                });
+    }
+
+    private Mono<OrdersDTOSend> reserveStock(OrdersDTOSend ordersDTO) {
+        return step(ordersDTO, () -> sagaTransport.reserveStock(ordersDTO))
+                .flatMap(response -> {
+                    if (isFailed(response)) {
+                        return fail(response);
+                    }
+                    log.info("Product (OK) --> payment check for order {}", response.getId());
+                    return sagaLog.append(SagaState.STOCK_RESERVED, response)
+                            .then(Mono.defer(() -> debitBalance(response)));
+                });
+    }
+
+    private Mono<OrdersDTOSend> debitBalance(OrdersDTOSend ordersDTO) {
+        return step(ordersDTO, () -> sagaTransport.debitBalance(ordersDTO))
+                .flatMap(response -> {
+                    if (isFailed(response)) {
+                        return compensate(response);
+                    }
+                    return sagaLog.append(SagaState.PAYMENT_DONE, response)
+                            .then(Mono.defer(() -> complete(response)));
+                });
+    }
+
+    // a step fails the order only on a definite no: a FAILED answer, a 4xx, or a call the guard never sent.
+    // a timeout, a 5xx or a broken connection says nothing about whether the step went through, and both
+    // steps are idempotent per order id, so the call is sent again with backoff. once a call went out with
+    // an unknown outcome a rejection by the guard is no answer either and is retried too. when the retries
+    // run out the saga stays in its last logged state and is resumed on the next start
+    private Mono<OrdersDTOSend> step(OrdersDTOSend ordersDTO, Supplier<Mono<OrdersDTOSend>> call) {
+        AtomicBoolean sent = new AtomicBoolean();
+        return Mono.defer(call)
+                .doOnError(error -> {
+                    if (!(error instanceof DownstreamRejectedException)) {
+                        sent.set(true);
+                    }
+                })
+                .retryWhen(Retry.backoff(stepRetries, Duration.ofMillis(200))
+                        .maxBackoff(Duration.ofSeconds(10))
+                        .filter(error -> !isDeclined(error, sent.get()))
+                        .doBeforeRetry(retry -> log.warn("Retrying step for order {} after: {}",
+                                ordersDTO.getId(), retry.failure().getMessage())))
+                .onErrorResume(error -> isDeclined(error, sent.get()), error -> {
+                    ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                    return Mono.just(ordersDTO);
+                });
+    }
+
+    private boolean isDeclined(Throwable error, boolean sent) {
+        if (error instanceof DownstreamRejectedException) {
+            return !sent;
+        }
+        return isClientError(error);
+    }
+
+    private boolean isClientError(Throwable error) {
+        return error instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+    }
+
+    // the held stock is confirmed before the order is announced COMPLETED, so a paid order never depends on
+    // the order-update event reaching product before its hold expires. confirming is idempotent and is
+    // retried like a step; when the retries run out the saga stays PAYMENT_DONE and confirms again on the
+    // next start. a confirm that came after the hold expired takes the stock again, and only when it is
+    // gone product answers FAILED: the order is failed instead of COMPLETED and its payment needs a refund
+    private Mono<OrdersDTOSend> complete(OrdersDTOSend ordersDTO) {
+        return Mono.defer(() -> sagaTransport.confirmStock(ordersDTO))
+                .retryWhen(Retry.backoff(stepRetries, Duration.ofMillis(200))
+                        .maxBackoff(Duration.ofSeconds(10))
+                        .doBeforeRetry(retry -> log.warn("Retrying stock confirmation for order {} after: {}",
+                                ordersDTO.getId(), retry.failure().getMessage())))
+                .defaultIfEmpty(ordersDTO)
+                .flatMap(response -> {
+                    if (isFailed(response)) {
+                        log.error("Order {} was paid but its expired hold could not be taken again,"
+                                + " the payment has to be refunded", ordersDTO.getId());
+                        ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                        return fail(ordersDTO);
+                    }
+                    return publish(() -> orchestratorProducer.sendToOrderUpdate(ordersDTO))
+                            .then(Mono.defer(() -> sagaLog.append(SagaState.COMPLETED, ordersDTO)))
+                            .thenReturn(ordersDTO);
+                });
+    }
+
+    // payment failed after the stock was deducted: fail the order and give the stock back.
+    // the re-add is retried with backoff, so a product circuit that is open for a few seconds does not
+    // leave the stock taken until the next restart. with product-releases-stock the order-update-fail
+    // event is the release and there is no call to make
+    private Mono<OrdersDTOSend> compensate(OrdersDTOSend ordersDTO) {
+        Mono<OrdersDTOSend> reAddStock = productReleasesStock
+                ? Mono.empty()
+                : Mono.defer(() -> orchestratorService.paymentFailReAddStock(ordersDTO))
+                        .retryWhen(Retry.backoff(compensationRetries, Duration.ofSeconds(1))
+                                .maxBackoff(Duration.ofSeconds(30))
+                                // a 4xx will not go away by asking again
+                                .filter(error -> !isClientError(error)));
+        return sagaLog.append(SagaState.COMPENSATING, ordersDTO)
+                .then(publish(() -> orchestratorProducer.sendToOrderUpdateFail(ordersDTO)))
+                .then(reAddStock)
+                .then(Mono.defer(() -> sagaLog.append(SagaState.FAILED, ordersDTO)))
+                .thenReturn(ordersDTO)
+                .onErrorResume(error -> {
+                    // the saga stays COMPENSATING in the log and is retried on the next start
+                    log.error("Compensation for order {} did not finish: {}", ordersDTO.getId(), error.getMessage());
+                    return Mono.just(ordersDTO);
+                });
+    }
+
+    private Mono<OrdersDTOSend> fail(OrdersDTOSend ordersDTO) {
+        return publish(() -> orchestratorProducer.sendToOrderUpdateFail(ordersDTO))
+                .then(Mono.defer(() -> sagaLog.append(SagaState.FAILED, ordersDTO)))
+                .thenReturn(ordersDTO);
+    }
+
+    // times the hand-off to the producer, the broker acknowledgement is timed by the producer listener
+    private Mono<Void> publish(Runnable send) {
+        return sagaMetrics.step(SagaMetrics.KAFKA_PUBLISH, Mono.fromRunnable(send));
+    }
+
+    private boolean isFailed(OrdersDTOSend response) {
+        return OrderStatusEnum.FAILED.name().equals(response.getOrdersDTO().getOrder_status());
+    }
+
+    // a resumed saga has no sample, its start was timed before the restart
+    private void stopTimer(SagaTask task, String outcome) {
+        if (task.sample() != null) {
+            sagaMetrics.stopSaga(task.sample(), outcome);
+        }
+    }
+
+    private record SagaTask(OrdersDTOSend ordersDTO, SagaState from, Sinks.One<OrdersDTOSend> result,
+            Timer.Sample sample) {
+    }
+
+}
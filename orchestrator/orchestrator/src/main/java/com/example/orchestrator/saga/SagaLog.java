@@ -0,0 +1,153 @@
+package com.example.orchestrator.saga;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// embedded append-only log of saga transitions, one JSON line per transition
+// the last line written for an order is its current state, so a restart can pick up where it stopped.
+// the latest entry of every saga still in flight is kept in memory, and once compact-every lines were
+// appended the file is rewritten to just those, so it stays about as large as the sagas in flight
+@Slf4j
+@Component
+public class SagaLog {
+
+    private final ObjectMapper objectMapper;
+
+    private final Path path;
+
+    private final int compactEvery;
+
+    // order id -> latest entry of the sagas not terminal yet, in the order they started
+    private final Map<String, SagaLogEntry> inFlight = new LinkedHashMap<>();
+
+    private BufferedWriter writer;
+
+    private int appendedSinceCompaction;
+
+    public SagaLog(ObjectMapper objectMapper, @Value("${orchestrator.saga.log-path:saga.log}") String path,
+            @Value("${orchestrator.saga.log-compact-every:100000}") int compactEvery) {
+        this.objectMapper = objectMapper;
+        this.path = Paths.get(path);
+        this.compactEvery = compactEvery;
+    }
+
+    // file IO is blocking, so keep it off the netty event loop
+    public Mono<Void> append(SagaState state, OrdersDTOSend ordersDTO) {
+        SagaLogEntry entry = new SagaLogEntry(String.valueOf(ordersDTO.getId()), state, LocalDateTime.now(),
+                ordersDTO);
+        return Mono.fromRunnable(() -> write(entry))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    // read back the log, keep only the sagas that did not reach a terminal state and compact the file to them
+    public synchronized List<SagaLogEntry> recover() {
+        closeWriter();
+        if (!Files.exists(path)) {
+            return List.of();
+        }
+
+        Map<String, SagaLogEntry> latest = new LinkedHashMap<>();
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    SagaLogEntry entry = objectMapper.readValue(line, SagaLogEntry.class);
+                    latest.put(entry.getOrderId(), entry);
+                } catch (JsonProcessingException e) {
+                    // a torn last line after a crash, everything before it is still valid
+                    log.warn("Skipping unreadable saga log line: {}", e.getMessage());
+                }
+            }
+
+            inFlight.clear();
+            for (SagaLogEntry entry : latest.values()) {
+                if (!entry.getState().isTerminal()) {
+                    inFlight.put(entry.getOrderId(), entry);
+                }
+            }
+            compact();
+
+            log.info("Saga log recovered, {} saga(s) still in flight", inFlight.size());
+            return new ArrayList<>(inFlight.values());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot recover saga log " + path, e);
+        }
+    }
+
+    // rewrites the file to the sagas in flight next to it and swaps it in, a crash halfway leaves the old file
+    private void compact() throws IOException {
+        closeWriter();
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        List<String> lines = new ArrayList<>();
+        for (SagaLogEntry entry : inFlight.values()) {
+            lines.add(objectMapper.writeValueAsString(entry));
+        }
+        Files.write(compacted, lines, StandardCharsets.UTF_8);
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        appendedSinceCompaction = 0;
+    }
+
+    private synchronized void write(SagaLogEntry entry) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(objectMapper.writeValueAsString(entry));
+            writer.newLine();
+            writer.flush();
+            if (entry.getState().isTerminal()) {
+                inFlight.remove(entry.getOrderId());
+            } else {
+                inFlight.put(entry.getOrderId(), entry);
+            }
+            if (++appendedSinceCompaction >= compactEvery) {
+                compact();
+                log.debug("Saga log compacted, {} saga(s) in flight", inFlight.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to saga log " + path, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Error closing saga log: {}", e.getMessage());
+        }
+        writer = null;
+    }
+
+}
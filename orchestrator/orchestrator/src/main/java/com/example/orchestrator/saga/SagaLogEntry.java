@@ -0,0 +1,25 @@
+package com.example.orchestrator.saga;
+
+import java.time.LocalDateTime;
+
+import com.example.DTO.order.OrdersDTOSend;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of the saga log: the latest state of an order and the payload needed to resume it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaLogEntry {
+
+    private String orderId;
+
+    private SagaState state;
+
+    private LocalDateTime timestamp;
+
+    private OrdersDTOSend payload;
+
+}
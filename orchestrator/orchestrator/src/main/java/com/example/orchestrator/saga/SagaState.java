@@ -0,0 +1,16 @@
+package com.example.orchestrator.saga;
+
+// the states an order saga moves through, in the order they are written to the saga log
+public enum SagaState {
+    STARTED,
+    STOCK_RESERVED,
+    PAYMENT_DONE,
+    COMPENSATING,
+    COMPLETED,
+    FAILED;
+
+    // COMPLETED and FAILED sagas need nothing more and are dropped when the log is compacted
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.orchestrator.saga;
+
+import com.example.DTO.order.OrdersDTOSend;
+
+import reactor.core.publisher.Mono;
+
+// how the saga asks product and payment to do their step, over http or as Kafka commands
+// (orchestrator.saga.transport). either way the answer is the order with its status set
+public interface SagaTransport {
+
+    Mono<OrdersDTOSend> reserveStock(OrdersDTOSend ordersDTO);
+
+    Mono<OrdersDTOSend> debitBalance(OrdersDTOSend ordersDTO);
+
+    Mono<OrdersDTOSend> confirmStock(OrdersDTOSend ordersDTO);
+
+}
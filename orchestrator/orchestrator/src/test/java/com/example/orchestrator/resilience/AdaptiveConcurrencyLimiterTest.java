@@ -0,0 +1,85 @@
+package com.example.orchestrator.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long TARGET = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong now = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        return new AdaptiveConcurrencyLimiter(2, 64, Duration.ofNanos(TARGET), 0.5, now::get);
+    }
+
+    private void acquire(AdaptiveConcurrencyLimiter limiter, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    @Test
+    void oneSpikeDecreasesTheLimitOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+        acquire(limiter, 40);
+
+        // every call in flight answers slowly within the same window
+        for (int i = 0; i < 20; i++) {
+            limiter.onSuccess(TARGET * 2);
+            now.addAndGet(TARGET / 40);
+        }
+        for (int i = 0; i < 20; i++) {
+            limiter.onFailure();
+        }
+        assertEquals(32, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void congestionThatLastsDecreasesOncePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        acquire(limiter, 1);
+        limiter.onFailure();
+        assertEquals(32, limiter.getLimit());
+
+        now.addAndGet(TARGET);
+        acquire(limiter, 1);
+        limiter.onFailure();
+        assertEquals(16, limiter.getLimit());
+
+        now.addAndGet(TARGET * 10);
+        for (int i = 0; i < 4; i++) {
+            acquire(limiter, 1);
+            limiter.onFailure();
+            now.addAndGet(TARGET);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void fastCallsRaiseTheLimitAgain() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+        acquire(limiter, 1);
+        limiter.onFailure();
+        assertEquals(32, limiter.getLimit());
+
+        // +1/limit per call, a little over one round of calls
+        for (int i = 0; i < 40; i++) {
+            acquire(limiter, 1);
+            limiter.onSuccess(TARGET / 2);
+        }
+        assertEquals(33, limiter.getLimit());
+
+        acquire(limiter, 33);
+        assertFalse(limiter.tryAcquire());
+    }
+
+}
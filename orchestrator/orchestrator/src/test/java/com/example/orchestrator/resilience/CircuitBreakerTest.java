@@ -0,0 +1,109 @@
+package com.example.orchestrator.resilience;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker circuitBreaker() {
+        return new CircuitBreaker(10, 4, 50, Duration.ofSeconds(10), 2, now::get);
+    }
+
+    private void succeed(CircuitBreaker circuitBreaker) {
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquire());
+    }
+
+    private void fail(CircuitBreaker circuitBreaker) {
+        circuitBreaker.onFailure(circuitBreaker.tryAcquire());
+    }
+
+    private void open(CircuitBreaker circuitBreaker) {
+        for (int i = 0; i < 4; i++) {
+            fail(circuitBreaker);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void opensOnceTheFailureRateReachesTheThreshold() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+
+        succeed(circuitBreaker);
+        fail(circuitBreaker);
+        succeed(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        fail(circuitBreaker);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void halfOpenProbesCloseTheCircuitAgain() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        open(circuitBreaker);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        long first = circuitBreaker.tryAcquire();
+        long second = circuitBreaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, first);
+        assertNotEquals(CircuitBreaker.REJECTED, second);
+        // only halfOpenProbes calls get through while half open
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+
+        circuitBreaker.onSuccess(first);
+        circuitBreaker.onSuccess(second);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertNotEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void aFailedProbeOpensTheCircuitAgain() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        open(circuitBreaker);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        fail(circuitBreaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void aCallFromBeforeTheCircuitOpenedIsNoProbe() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        long slow = circuitBreaker.tryAcquire();
+        open(circuitBreaker);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        long probe = circuitBreaker.tryAcquire();
+        circuitBreaker.onSuccess(slow);
+        circuitBreaker.onSuccess(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        succeed(circuitBreaker);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void failuresWhileOpenDoNotRestartTheOpenWindow() {
+        CircuitBreaker circuitBreaker = circuitBreaker();
+        long inFlight = circuitBreaker.tryAcquire();
+        open(circuitBreaker);
+
+        now.addAndGet(Duration.ofSeconds(9).toNanos());
+        circuitBreaker.onFailure(inFlight);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        assertNotEquals(CircuitBreaker.REJECTED, circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+}
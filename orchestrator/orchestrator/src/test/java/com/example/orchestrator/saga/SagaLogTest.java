@@ -0,0 +1,87 @@
+package com.example.orchestrator.saga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class SagaLogTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private OrdersDTOSend order(Long id) {
+        OrdersDTOSend ordersDTOSend = new OrdersDTOSend();
+        ordersDTOSend.setId(id);
+        return ordersDTOSend;
+    }
+
+    @Test
+    void recoverReturnsOnlySagasThatDidNotFinish() {
+        SagaLog sagaLog = new SagaLog(objectMapper, dir.resolve("saga.log").toString(), 1000);
+
+        sagaLog.append(SagaState.STARTED, order(1L)).block();
+        sagaLog.append(SagaState.STOCK_RESERVED, order(1L)).block();
+        sagaLog.append(SagaState.STARTED, order(2L)).block();
+        sagaLog.append(SagaState.STOCK_RESERVED, order(2L)).block();
+        sagaLog.append(SagaState.PAYMENT_DONE, order(2L)).block();
+        sagaLog.append(SagaState.COMPLETED, order(2L)).block();
+
+        List<SagaLogEntry> inFlight = sagaLog.recover();
+
+        assertEquals(1, inFlight.size());
+        assertEquals("1", inFlight.get(0).getOrderId());
+        assertEquals(SagaState.STOCK_RESERVED, inFlight.get(0).getState());
+    }
+
+    @Test
+    void recoverCompactsTheLog() {
+        SagaLog sagaLog = new SagaLog(objectMapper, dir.resolve("saga.log").toString(), 1000);
+
+        sagaLog.append(SagaState.STARTED, order(1L)).block();
+        sagaLog.append(SagaState.FAILED, order(1L)).block();
+        sagaLog.append(SagaState.COMPENSATING, order(3L)).block();
+        sagaLog.recover();
+
+        // a second instance reading the compacted file sees the same in-flight saga
+        List<SagaLogEntry> inFlight = new SagaLog(objectMapper, dir.resolve("saga.log").toString(), 1000).recover();
+
+        assertEquals(1, inFlight.size());
+        assertTrue(inFlight.stream().allMatch(entry -> entry.getState() == SagaState.COMPENSATING));
+    }
+
+    @Test
+    void appendingCompactsTheLogToTheSagasInFlight() throws Exception {
+        Path file = dir.resolve("saga.log");
+        SagaLog sagaLog = new SagaLog(objectMapper, file.toString(), 10);
+
+        sagaLog.append(SagaState.STARTED, order(0L)).block();
+        for (long id = 1; id <= 100; id++) {
+            sagaLog.append(SagaState.STARTED, order(id)).block();
+            sagaLog.append(SagaState.COMPLETED, order(id)).block();
+        }
+
+        // the 201 lines were compacted every 10, what is left is the open saga and the lines since
+        assertTrue(Files.readAllLines(file).size() <= 10);
+        List<SagaLogEntry> inFlight = new SagaLog(objectMapper, file.toString(), 10).recover();
+        assertEquals(1, inFlight.size());
+        assertEquals("0", inFlight.get(0).getOrderId());
+    }
+
+    @Test
+    void recoverWithoutLogFileIsEmpty() {
+        SagaLog sagaLog = new SagaLog(objectMapper, dir.resolve("missing.log").toString(), 1000);
+
+        assertTrue(sagaLog.recover().isEmpty());
+    }
+}
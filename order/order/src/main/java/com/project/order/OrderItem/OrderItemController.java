@@ -2,17 +2,23 @@ package com.project.order.OrderItem;
 
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.page.CursorPage;
+
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.PutMapping;
 
 @RestController
@@ -22,9 +28,30 @@ public class OrderItemController {
     @Autowired
     private OrderItemService orderItemService;
 
-    @GetMapping("/all") // display all order items
-    public Flux<OrderItem> getAllOrderItem() {
-        return orderItemService.getAllOrderItem();
+    @Autowired
+    private OrderItemQueryService orderItemQueryService;
+
+    // kept for old clients: it no longer reads the whole table but answers the first page only, bounded by
+    // paging.max-page-size, and tells the client to move to /page or /export
+    @Deprecated
+    @GetMapping("/all") // display the first page of order items
+    public Flux<OrderItem> getAllOrderItem(ServerHttpResponse response) {
+        response.getHeaders().add("Deprecation", "true");
+        response.getHeaders().add(HttpHeaders.LINK, "</orderitem/page>; rel=\"successor-version\"");
+        return orderItemQueryService.getOrderItemPage(null, Integer.MAX_VALUE)
+                .flatMapIterable(CursorPage::getItems);
+    }
+
+    @GetMapping("/page") // display order items page by page, pass nextCursor back as cursor
+    public Mono<CursorPage<OrderItem>> getOrderItemPage(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return orderItemQueryService.getOrderItemPage(cursor, size);
+    }
+
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE }) // stream every order item as NDJSON or server-sent events
+    public Flux<OrderItem> exportOrderItem() {
+        return orderItemQueryService.streamOrderItems();
     }
 
     @GetMapping("/{id}") // display order items by id
@@ -0,0 +1,43 @@
+package com.project.order.OrderItem;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.page.CursorPage;
+import com.example.page.KeysetPages;
+import com.project.order.exception.OrderException;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// bounded reads of the order items for dashboards and exports, instead of findAll()
+@Service
+public class OrderItemQueryService {
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Value("${paging.max-page-size:500}")
+    private int maxPageSize;
+
+    private KeysetPages<OrderItem> orderItemPages;
+
+    @PostConstruct
+    void initPages() {
+        orderItemPages = new KeysetPages<>(template, OrderItem.class, OrderItem::getId,
+                maxPageSize, OrderException::new);
+    }
+
+    // keyset pagination on id, so every page costs the same no matter how deep it is
+    public Mono<CursorPage<OrderItem>> getOrderItemPage(String cursor, Integer size) {
+        return orderItemPages.page(cursor, size);
+    }
+
+    public Flux<OrderItem> streamOrderItems() {
+        return orderItemPages.stream();
+    }
+
+}
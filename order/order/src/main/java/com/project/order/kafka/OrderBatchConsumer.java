@@ -0,0 +1,100 @@
+package com.project.order.kafka;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.enume.OrderStatusEnum;
+import com.project.order.orders.OrderStatusBatchRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+// receives a whole poll of order status messages, writes them with one statement and only then
+// commits the offsets. replaces OrderConsumer when order.kafka.batch.enabled=true
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "order.kafka.batch.enabled", havingValue = "true")
+public class OrderBatchConsumer {
+
+    private static final String ORDER_UPDATE_FAIL = "order-update-fail";
+
+    private static final Duration UPDATE_TIMEOUT = Duration.ofSeconds(30);
+
+    @Autowired
+    private OrderStatusBatchRepository orderStatusBatchRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @KafkaListener(topics = { "order-update", ORDER_UPDATE_FAIL }, groupId = "didiKerenGroup",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeOrderResponses(List<ConsumerRecord<String, OrdersDTOSend>> records,
+            Acknowledgment acknowledgment) {
+        recordDelay(records);
+        Map<Long, String> statuses = statusesOf(records);
+
+        // the listener runs on the consumer thread, not the event loop, so waiting here is fine and
+        // keeps the offsets from being committed before the rows are written
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Long updated = orderStatusBatchRepository.updateStatuses(statuses).block(UPDATE_TIMEOUT);
+        sample.stop(Timer.builder("order.status.batch.update")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        DistributionSummary.builder("order.status.batch.size")
+                .register(meterRegistry)
+                .record(records.size());
+
+        log.info("Applied {} order status update(s) from {} record(s), {} row(s) changed",
+                statuses.size(), records.size(), updated);
+        acknowledgment.acknowledge();
+    }
+
+    // time from the orchestrator producing the record to this poll, the lag as the customer sees it
+    private void recordDelay(List<ConsumerRecord<String, OrdersDTOSend>> records) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, OrdersDTOSend> record : records) {
+            Timer.builder("order.status.delay")
+                    .tag("topic", record.topic())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // the last message in the batch wins when an order appears more than once
+    public Map<Long, String> statusesOf(List<ConsumerRecord<String, OrdersDTOSend>> records) {
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        for (ConsumerRecord<String, OrdersDTOSend> record : records) {
+            OrdersDTOSend message = record.value();
+            if (message == null || message.getId() == null) {
+                continue;
+            }
+            statuses.put(message.getId(), statusOf(record.topic(), message));
+        }
+        return statuses;
+    }
+
+    private String statusOf(String topic, OrdersDTOSend message) {
+        if (ORDER_UPDATE_FAIL.equals(topic)) {
+            return OrderStatusEnum.FAILED.name();
+        }
+        if (message.getOrdersDTO() != null && message.getOrdersDTO().getOrder_status() != null) {
+            return message.getOrdersDTO().getOrder_status();
+        }
+        return OrderStatusEnum.COMPLETED.name();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.project.order.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import com.example.kafka.WireFormatDeserializer;
+
+// batch mode for the order status listener, enabled with order.kafka.batch.enabled=true.
+// set order.kafka.batch.concurrency to the partition count of order-update / order-update-fail
+@Configuration
+@ConditionalOnProperty(name = "order.kafka.batch.enabled", havingValue = "true")
+public class OrderBatchListenerConfig {
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> batchKafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory,
+            @Value("${order.kafka.batch.concurrency:3}") int concurrency,
+            @Value("${order.kafka.batch.max-poll-records:500}") int maxPollRecords) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        // status messages may arrive as JSON or CBOR, see kafka.wire-format on the orchestrator
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, WireFormatDeserializer.class.getName());
+        // a failed batch is redelivered from its first uncommitted offset, for as long as it keeps failing:
+        // giving up would commit past status updates that were never written
+        factory.setCommonErrorHandler(new DefaultErrorHandler(retryForever()));
+        return factory;
+    }
+
+    // 1 s doubling up to 30 s between attempts, with no limit on attempts or elapsed time
+    public static BackOff retryForever() {
+        ExponentialBackOff backOff = new ExponentialBackOff(1000L, 2.0);
+        backOff.setMaxInterval(30_000L);
+        backOff.setMaxElapsedTime(Long.MAX_VALUE);
+        backOff.setMaxAttempts(Integer.MAX_VALUE);
+        return backOff;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.project.order.orders;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import reactor.core.publisher.Mono;
+
+// applies the status updates of a whole Kafka batch with one statement
+@Repository
+public class OrderStatusBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    private final String table;
+
+    public OrderStatusBatchRepository(DatabaseClient databaseClient,
+            @Value("${order.kafka.batch.table:orders}") String table) {
+        this.databaseClient = databaseClient;
+        this.table = table;
+    }
+
+    // order id -> new order_status, returns how many orders were updated
+    public Mono<Long> updateStatuses(Map<Long, String> statuses) {
+        if (statuses.isEmpty()) {
+            return Mono.just(0L);
+        }
+        Long[] ids = statuses.keySet().toArray(new Long[0]);
+        String[] values = statuses.values().toArray(new String[0]);
+
+        return databaseClient.sql("UPDATE " + table + " AS o"
+                + " SET order_status = v.status"
+                + " FROM unnest(CAST(:ids AS BIGINT[]), CAST(:statuses AS VARCHAR[])) AS v(id, status)"
+                + " WHERE o.id = v.id")
+                .bind("ids", ids)
+                .bind("statuses", values)
+                .fetch()
+                .rowsUpdated();
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.project.order;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.project.order.kafka.OrderBatchConsumer;
+import com.project.order.kafka.OrderBatchListenerConfig;
+import com.project.order.orders.OrderStatusBatchRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(MockitoExtension.class)
+public class OrderBatchConsumerTest {
+
+    @Mock
+    private OrderStatusBatchRepository orderStatusBatchRepository;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private OrderBatchConsumer orderBatchConsumer;
+
+    private ConsumerRecord<String, OrdersDTOSend> record(String topic, long offset, Long orderId) {
+        OrdersDTOSend message = new OrdersDTOSend();
+        message.setId(orderId);
+        return new ConsumerRecord<>(topic, 0, offset, null, message);
+    }
+
+    @Test
+    void appliesTheBatchAndThenAcknowledges() {
+        when(orderStatusBatchRepository.updateStatuses(Map.of(1L, "COMPLETED", 2L, "FAILED")))
+                .thenReturn(Mono.just(2L));
+
+        orderBatchConsumer.consumeOrderResponses(List.of(
+                record("order-update", 0, 1L),
+                record("order-update-fail", 0, 2L)), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void doesNotAcknowledgeWhenTheUpdateFails() {
+        when(orderStatusBatchRepository.updateStatuses(anyMap()))
+                .thenReturn(Mono.error(new IllegalStateException("database down")));
+
+        assertThrows(IllegalStateException.class, () -> orderBatchConsumer.consumeOrderResponses(
+                List.of(record("order-update", 0, 1L)), acknowledgment));
+
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    // an outage of any length is waited out: the batch is never handed to a recoverer and committed past
+    @Test
+    void aFailingBatchIsRetriedWithoutEnd() {
+        BackOffExecution execution = OrderBatchListenerConfig.retryForever().start();
+        long interval = 0;
+        for (int attempt = 0; attempt < 10_000; attempt++) {
+            interval = execution.nextBackOff();
+            assertNotEquals(BackOff.STOP, interval);
+        }
+        assertEquals(30_000L, interval);
+    }
+
+    @Test
+    void lastMessageForAnOrderWins() {
+        assertEquals(Map.of(1L, "FAILED"), orderBatchConsumer.statusesOf(List.of(
+                record("order-update", 0, 1L),
+                record("order-update-fail", 1, 1L))));
+    }
+}
@@ -0,0 +1,33 @@
+package com.project.payment.balance;
+
+import com.example.DTO.money.Money;
+
+import reactor.core.publisher.Mono;
+
+// balance changes done as a single conditional statement, so parallel orders of one customer cannot
+// lose an update or overdraw the account. every change bumps the version of the row and drops it from
+// the BalanceCache
+public interface BalanceDebitRepository {
+
+    // subtract the amount only if the balance covers it
+    Mono<DebitOutcome> debit(Long customerId, Money amount);
+
+    // the balance of the customer, its row locked until the surrounding transaction ends; empty when missing
+    Mono<Money> lockAmount(Long customerId);
+
+    // subtract the amount unconditionally, for a total already checked against the locked balance
+    Mono<Long> subtract(Long customerId, Money amount);
+
+    // add the amount (negative to subtract unconditionally) and return the updated row
+    Mono<Balance> credit(Long id, Money amount);
+
+    // a new balance is its own customer: customer_id is set to the id and the updated row returned
+    Mono<Balance> assignCustomer(Long id);
+
+    // the row with its version, for the cache to load; empty when missing
+    Mono<BalanceSnapshot> findSnapshot(Long id);
+
+    // the balance the debits of the customer work on, with its version for the cache; empty when missing
+    Mono<BalanceSnapshot> findSnapshotByCustomer(Long customerId);
+
+}
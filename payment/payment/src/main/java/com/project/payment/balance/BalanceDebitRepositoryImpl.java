@@ -0,0 +1,139 @@
+package com.project.payment.balance;
+
+import java.math.BigDecimal;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.DTO.money.Money;
+import com.project.payment.cache.BalanceCache;
+
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import reactor.core.publisher.Mono;
+
+@Repository
+public class BalanceDebitRepositoryImpl implements BalanceDebitRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    private final DatabaseClient databaseClient;
+
+    private final String table;
+
+    private final BalanceCache balanceCache;
+
+    public BalanceDebitRepositoryImpl(R2dbcEntityTemplate template, BalanceCache balanceCache) {
+        this.template = template;
+        this.balanceCache = balanceCache;
+        this.databaseClient = template.getDatabaseClient();
+        this.table = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Balance.class)
+                .getTableName()
+                .toSql(IdentifierProcessing.NONE);
+    }
+
+    @Override
+    public Mono<DebitOutcome> debit(Long customerId, Money amount) {
+        return databaseClient.sql("UPDATE " + table
+                + " SET amount = amount - :amount, version = version + 1"
+                + " WHERE customer_id = :customerId AND amount >= :amount"
+                + " RETURNING id, version")
+                .bind("amount", amount.toBigDecimal())
+                .bind("customerId", customerId)
+                .map(this::invalidate)
+                .all()
+                .count()
+                .flatMap(rows -> rows > 0
+                        ? Mono.just(DebitOutcome.DEBITED)
+                        // only a refused debit pays for the second look-up
+                        : exists(customerId).map(found -> found ? DebitOutcome.INSUFFICIENT : DebitOutcome.NOT_FOUND));
+    }
+
+    @Override
+    public Mono<Money> lockAmount(Long customerId) {
+        return databaseClient.sql("SELECT amount FROM " + table + " WHERE customer_id = :customerId FOR UPDATE")
+                .bind("customerId", customerId)
+                .map(row -> Money.ofMajor(row.get("amount", BigDecimal.class)))
+                .first();
+    }
+
+    @Override
+    public Mono<Long> subtract(Long customerId, Money amount) {
+        return databaseClient.sql("UPDATE " + table
+                + " SET amount = amount - :amount, version = version + 1"
+                + " WHERE customer_id = :customerId"
+                + " RETURNING id, version")
+                .bind("amount", amount.toBigDecimal())
+                .bind("customerId", customerId)
+                .map(this::invalidate)
+                .all()
+                .count();
+    }
+
+    @Override
+    public Mono<Balance> credit(Long id, Money amount) {
+        return databaseClient.sql("UPDATE " + table
+                + " SET amount = amount + :amount, version = version + 1"
+                + " WHERE id = :id"
+                + " RETURNING *")
+                .bind("amount", amount.toBigDecimal())
+                .bind("id", id)
+                .map(this::readWritten)
+                .one();
+    }
+
+    @Override
+    public Mono<Balance> assignCustomer(Long id) {
+        return databaseClient.sql("UPDATE " + table
+                + " SET customer_id = id, version = version + 1"
+                + " WHERE id = :id"
+                + " RETURNING *")
+                .bind("id", id)
+                .map(this::readWritten)
+                .one();
+    }
+
+    @Override
+    public Mono<BalanceSnapshot> findSnapshot(Long id) {
+        return databaseClient.sql("SELECT * FROM " + table + " WHERE id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> new BalanceSnapshot(
+                        template.getConverter().read(Balance.class, row, metadata),
+                        row.get("version", Long.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<BalanceSnapshot> findSnapshotByCustomer(Long customerId) {
+        return databaseClient.sql("SELECT * FROM " + table + " WHERE customer_id = :customerId")
+                .bind("customerId", customerId)
+                .map((row, metadata) -> new BalanceSnapshot(
+                        template.getConverter().read(Balance.class, row, metadata),
+                        row.get("version", Long.class)))
+                .first();
+    }
+
+    private Long invalidate(Readable row) {
+        Long id = row.get("id", Long.class);
+        balanceCache.invalidate(id, row.get("version", Long.class));
+        return id;
+    }
+
+    private Balance readWritten(Row row, RowMetadata metadata) {
+        invalidate(row);
+        return template.getConverter().read(Balance.class, row, metadata);
+    }
+
+    private Mono<Boolean> exists(Long customerId) {
+        return databaseClient.sql("SELECT 1 FROM " + table + " WHERE customer_id = :customerId")
+                .bind("customerId", customerId)
+                .map(row -> Boolean.TRUE)
+                .first()
+                .defaultIfEmpty(Boolean.FALSE);
+    }
+
+}
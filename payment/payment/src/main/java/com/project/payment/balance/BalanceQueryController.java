@@ -0,0 +1,40 @@
+package com.project.payment.balance;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.page.CursorPage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/balance")
+public class BalanceQueryController {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @GetMapping("/page") // display balances page by page, pass nextCursor back as cursor
+    public Mono<CursorPage<Balance>> getBalancePage(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return balanceService.getBalancePage(cursor, size);
+    }
+
+    @GetMapping("/available/{customerId}") // read-only balance of a customer, used to pre-check orders
+    public Mono<Balance> getAvailableBalance(@PathVariable Long customerId) {
+        return balanceService.getBalanceByCustomerId(customerId);
+    }
+
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE }) // stream every balance as NDJSON or server-sent events
+    public Flux<Balance> exportBalances() {
+        return balanceService.streamBalances();
+    }
+
+}
@@ -1,14 +1,29 @@
 package com.project.payment.balance;
 
+import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
 
 import com.example.DTO.balance.BalanceDTO;
+import com.example.DTO.money.Money;
 import com.example.DTO.order.OrdersDTOSend;
 import com.example.enume.OrderStatusEnum;
+import com.example.idempotency.IdempotencyGuard;
+import com.example.logging.LogSampling;
+import com.example.metrics.MonoTimer;
+import com.example.page.CursorPage;
+import com.example.page.KeysetPages;
+import com.project.payment.cache.BalanceCache;
 import com.project.payment.exception.PaymentException;
-import com.project.payment.payment.PaymentService;
+import com.project.payment.kafka.PaymentTransactionConsumer;
+import com.project.payment.outbox.OutboxService;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -18,11 +33,40 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class BalanceService {
 
+    // success line of the order path, kept 1 in logging.sampling.success-every
+    private static final Marker BALANCE_DEBITED = LogSampling.path("payment.balance-debited");
+
     @Autowired
     private BalanceRepository balanceRepository;
 
     @Autowired
-    private PaymentService paymentService;
+    private BalanceDebitRepository balanceDebitRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private CoalescedDebits coalescedDebits;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${paging.max-page-size:500}")
+    private int maxPageSize;
+
+    private KeysetPages<Balance> balancePages;
 
     public Flux<Balance> getBalance() {
         return balanceRepository.findAll()
@@ -32,73 +76,122 @@ public class BalanceService {
                                         String.format("Can't find balance info"))));
     }
 
+    @PostConstruct
+    void initPages() {
+        balancePages = new KeysetPages<>(template, Balance.class, Balance::getId, maxPageSize, PaymentException::new);
+    }
+
+    // keyset pagination on id, so every page costs the same no matter how deep it is
+    public Mono<CursorPage<Balance>> getBalancePage(String cursor, Integer size) {
+        return balancePages.page(cursor, size);
+    }
+
+    public Flux<Balance> streamBalances() {
+        return balancePages.stream();
+    }
+
+    // read through the balance cache, a balance written since it was cached is read again
     public Mono<Balance> getBalanceById(Long id) {
-        return balanceRepository.findById(id)
+        return balanceCache.get(id, balanceDebitRepository::findSnapshot)
                 .switchIfEmpty(Mono.error(
                         new PaymentException(
                                 String.format("Can't find balance info id: " + id))));
     }
 
+    // the /balance/available pre-check: the row the debit will change, read through the balance cache.
+    // the debit itself stays a guarded statement, a stale pre-check only lets a doomed order start
+    public Mono<Balance> getBalanceByCustomerId(Long customerId) {
+        return balanceCache.getByCustomer(customerId, balanceDebitRepository::findSnapshotByCustomer,
+                        balanceDebitRepository::findSnapshot)
+                .switchIfEmpty(Mono.error(
+                        new PaymentException(
+                                String.format("Can't find balance info customer id: " + customerId))));
+    }
+
     public Mono<Balance> addBalanceInfo(BalanceDTO balanceDTO) {
         Balance balance = Balance.builder()
                 .amount(balanceDTO.getAmount())
                 .build();
 
+        // customer_id is set by a statement on the row, not by saving a copy read back in between
         return balanceRepository.save(balance)
                 .flatMap(savedBalance -> {
                     log.info("Balance created with id: {}", savedBalance.getId());
-                    savedBalance.setCustomer_id(savedBalance.getId());
-                    return getBalanceById(savedBalance.getId())
-                            .flatMap(balance2 -> {
-                                balance2.setCustomer_id(balance2.getId());
-                                return balanceRepository.save(balance2);
-                            });
+                    return balanceDebitRepository.assignCustomer(savedBalance.getId());
                 })
-                .doOnError(error -> log.error("Error occurred: " + error.getMessage()));
+                .doOnError(error -> log.error("Error occurred: {}", error.getMessage()));
     }
 
     public Mono<Balance> updateBalance(Long id, @Valid BalanceDTO balanceDTO) {
-        return balanceRepository.findById(id)
-                .flatMap(savedBalance -> {
-                    // updating the balance amount
-                    savedBalance.setAmount(savedBalance.getAmount() + balanceDTO.getAmount());
-                    return balanceRepository.save(savedBalance);
-                })
-                .doOnError(error -> log.error("Error occurred: " + error.getMessage()));
+        // updating the balance amount
+        return balanceDebitRepository.credit(id, Money.ofMajor(balanceDTO.getAmount()))
+                .doOnError(error -> log.error("Error occurred: {}", error.getMessage()));
     }
 
+    // a retried or redelivered order gets its first answer back instead of a second debit. a coalesced
+    // debit commits in its batch's own transaction, so the claim is not held open while it waits
     public Mono<OrdersDTOSend> checkBalanceAndDeduct(@Valid OrdersDTOSend ordersDTO) {
+        if (coalescedDebits.isEnabled()) {
+            return idempotencyGuard.executeDetached("check-balance", ordersDTO.getId(), OrdersDTOSend.class,
+                    () -> deductBalance(ordersDTO));
+        }
+        return idempotencyGuard.execute("check-balance", ordersDTO.getId(), OrdersDTOSend.class,
+                () -> deductBalance(ordersDTO));
+    }
+
+    // the sufficiency check and the deduction are one guarded UPDATE, the outcome comes from the row count.
+    // the transaction record is announced through the outbox row written in the same transaction as the
+    // debit, so it can neither be lost nor hold up the response. with coalescing on, the debit and its
+    // outbox row are written by the batch of the customer instead
+    private Mono<OrdersDTOSend> deductBalance(OrdersDTOSend ordersDTO) {
         Long id = ordersDTO.getOrdersDTO().getCustomer_id(); // customer id
-        Float price = ordersDTO.getOrdersDTO().getTotal_amount(); // total price of the product
-        log.info("Checking the balance for id: " + id);
-        log.info("Total price of the product: " + price);
-
-        return balanceRepository.findById(id) // find by id
-                .flatMap(savedInfo -> {
-                    // check if the account can buy the product
-                    if (savedInfo.getAmount() < price) {
-                        log.info("Change the order status FAILED(Payment Failed)");
-                        ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
-                        paymentService.addTransactionDetailsFail(ordersDTO).subscribe();
-                        return Mono.just(ordersDTO);
-                    } else {
-                        log.info("Change the order status COMPLETED(Payment Success)");
-                        savedInfo.setAmount(savedInfo.getAmount() - price);
-                        ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.COMPLETED.name());
-                        paymentService.addTransactionDetailsSuccess(ordersDTO).subscribe();
-                        return balanceRepository.save(savedInfo)
-                                .flatMap(balance -> {
-                                    log.info("Balance updated with id: {}", balance.getId());
-                                    return Mono.just(ordersDTO);
-                                });
-                    }
-                })
-                .switchIfEmpty(Mono.defer(() -> {
-                    log.info("Account not found --> order (FAIL) for item: " + ordersDTO);
-                    ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
-                    Mono.error(new PaymentException("Customer not found. Id: " + id));
-                    paymentService.addTransactionDetailsFail(ordersDTO).subscribe();
-                    return Mono.just(ordersDTO);
-                }));
+        Money price = Money.ofMajor(ordersDTO.getOrdersDTO().getTotal_amount()); // total price of the product
+        log.debug("Checking the balance for id: {}, total price of the product: {}", id, price);
+
+        if (coalescedDebits.isEnabled()) {
+            return MonoTimer.time(meterRegistry, "payment.balance.debit", Tags.empty(),
+                    coalescedDebits.debit(ordersDTO).map(outcome -> applyOutcome(ordersDTO, outcome)));
+        }
+
+        Mono<OrdersDTOSend> debit = balanceDebitRepository.debit(id, price)
+                .flatMap(outcome -> {
+                    applyOutcome(ordersDTO, outcome);
+                    String topic = outcome == DebitOutcome.DEBITED
+                            ? PaymentTransactionConsumer.TRANSACTION_SUCCESS
+                            : PaymentTransactionConsumer.TRANSACTION_FAIL;
+                    return outboxService.record(topic, String.valueOf(ordersDTO.getId()), ordersDTO)
+                            .thenReturn(ordersDTO);
+                });
+
+        // payment.balance.debit covers the debit, the outbox row and the commit
+        return MonoTimer.time(meterRegistry, "payment.balance.debit", Tags.empty(),
+                transactionalOperator.transactional(debit));
+    }
+
+    private OrdersDTOSend applyOutcome(OrdersDTOSend ordersDTO, DebitOutcome outcome) {
+        Long id = ordersDTO.getOrdersDTO().getCustomer_id();
+        switch (outcome) {
+            case DEBITED:
+                log.atInfo().addMarker(BALANCE_DEBITED)
+                        .addKeyValue("orderId", ordersDTO.getId())
+                        .addKeyValue("customerId", id)
+                        .log("Change the order status COMPLETED(Payment Success)");
+                ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.COMPLETED.name());
+                break;
+            case INSUFFICIENT:
+                log.atInfo()
+                        .addKeyValue("orderId", ordersDTO.getId())
+                        .addKeyValue("customerId", id)
+                        .log("Change the order status FAILED(Payment Failed)");
+                ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                break;
+            default:
+                log.atInfo()
+                        .addKeyValue("orderId", ordersDTO.getId())
+                        .addKeyValue("customerId", id)
+                        .log("Account not found --> order (FAIL)");
+                ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+        }
+        return ordersDTO;
     }
 }
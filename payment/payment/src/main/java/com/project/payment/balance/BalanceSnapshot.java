@@ -0,0 +1,16 @@
+package com.project.payment.balance;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// a balance row as read or written at one row version. every statement changing the row bumps the version,
+// so of two snapshots of the same row the one with the higher version is the newer
+@Getter
+@AllArgsConstructor
+public class BalanceSnapshot {
+
+    private final Balance balance;
+
+    private final long version;
+
+}
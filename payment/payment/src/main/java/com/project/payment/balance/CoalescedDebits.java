@@ -0,0 +1,147 @@
+package com.project.payment.balance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.DTO.money.Money;
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.batch.MicroBatcher;
+import com.example.enume.OrderStatusEnum;
+import com.project.payment.kafka.PaymentTransactionConsumer;
+import com.project.payment.outbox.OutboxEvent;
+import com.project.payment.outbox.OutboxRepository;
+import com.project.payment.outbox.OutboxService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// opt-in coalescing of the debits of one customer. the orders arriving within window (or max-batch of
+// them) are decided together: one transaction locks the balance row once, debits the orders in arrival
+// order as long as the balance covers them, subtracts their sum with one UPDATE and records the
+// transaction of every order in the outbox. a customer ordering in bursts then takes one row lock per
+// batch instead of one per order.
+// the batch commits on its own connection, and callers take their idempotency claim in a short transaction
+// before they submit (IdempotencyGuard.executeDetached) instead of holding one open while the batch waits
+// for a connection. the outbox is the ledger of the batch: an order that already has a transaction recorded
+// gets that outcome back and is not debited again
+@Component
+public class CoalescedDebits {
+
+    private static final List<String> TRANSACTION_TOPICS = List.of(
+            PaymentTransactionConsumer.TRANSACTION_SUCCESS, PaymentTransactionConsumer.TRANSACTION_FAIL);
+
+    private final BalanceDebitRepository balanceDebitRepository;
+
+    private final OutboxRepository outboxRepository;
+
+    private final OutboxService outboxService;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final boolean enabled;
+
+    private final MicroBatcher<Long, OrdersDTOSend, DebitOutcome> batcher;
+
+    public CoalescedDebits(BalanceDebitRepository balanceDebitRepository, OutboxRepository outboxRepository,
+            OutboxService outboxService, TransactionalOperator transactionalOperator, MeterRegistry meterRegistry,
+            @Value("${payment.coalescing.enabled:false}") boolean enabled,
+            @Value("${payment.coalescing.window:PT0.002S}") Duration window,
+            @Value("${payment.coalescing.max-batch:64}") int maxBatch) {
+        this.balanceDebitRepository = balanceDebitRepository;
+        this.outboxRepository = outboxRepository;
+        this.outboxService = outboxService;
+        this.transactionalOperator = transactionalOperator;
+        this.enabled = enabled;
+        this.batcher = new MicroBatcher<>("payment.balance.coalesced", window, maxBatch, meterRegistry,
+                this::debitBatch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // debits the total of the order and sets its status; the outbox row is already written when this answers
+    public Mono<DebitOutcome> debit(OrdersDTOSend order) {
+        return batcher.submit(order.getOrdersDTO().getCustomer_id(), order);
+    }
+
+    private Mono<List<DebitOutcome>> debitBatch(Long customerId, List<OrdersDTOSend> orders) {
+        List<String> keys = orders.stream().map(order -> String.valueOf(order.getId())).toList();
+        Mono<List<DebitOutcome>> batch = balanceDebitRepository.lockAmount(customerId)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(balance -> outboxRepository.findByKeys(keys, TRANSACTION_TOPICS)
+                        .collectMap(OutboxEvent::getMessage_key, OutboxEvent::getTopic)
+                        .flatMap(recorded -> {
+                            List<OrdersDTOSend> decidedNow = new ArrayList<>();
+                            List<DebitOutcome> outcomes = decide(balance, recorded, orders, decidedNow);
+                            Money total = Money.ZERO;
+                            for (OrdersDTOSend order : decidedNow) {
+                                if (isCompleted(order)) {
+                                    total = total.plus(Money.ofMajor(order.getOrdersDTO().getTotal_amount()));
+                                }
+                            }
+                            return (total.equals(Money.ZERO)
+                                    ? Mono.just(0L)
+                                    : balanceDebitRepository.subtract(customerId, total))
+                                    .thenMany(Flux.fromIterable(decidedNow))
+                                    .concatMap(order -> outboxService.record(isCompleted(order)
+                                            ? PaymentTransactionConsumer.TRANSACTION_SUCCESS
+                                            : PaymentTransactionConsumer.TRANSACTION_FAIL,
+                                            String.valueOf(order.getId()), order))
+                                    .then(Mono.just(outcomes));
+                        }));
+        return transactionalOperator.transactional(batch);
+    }
+
+    // first come first served: an order too big for what is left fails, the smaller ones after it can still
+    // be debited. an order appearing twice gets the answer of its first occurrence
+    private List<DebitOutcome> decide(Optional<Money> balance, Map<String, String> recorded,
+            List<OrdersDTOSend> orders, List<OrdersDTOSend> decidedNow) {
+        Money remaining = balance.orElse(Money.ZERO);
+        Map<String, DebitOutcome> decided = new HashMap<>();
+        List<DebitOutcome> outcomes = new ArrayList<>(orders.size());
+        for (OrdersDTOSend order : orders) {
+            String key = String.valueOf(order.getId());
+            DebitOutcome outcome = decided.get(key);
+            if (outcome == null) {
+                Money price = Money.ofMajor(order.getOrdersDTO().getTotal_amount());
+                if (recorded.containsKey(key)) {
+                    outcome = PaymentTransactionConsumer.TRANSACTION_SUCCESS.equals(recorded.get(key))
+                            ? DebitOutcome.DEBITED
+                            : DebitOutcome.INSUFFICIENT;
+                } else if (balance.isEmpty()) {
+                    outcome = DebitOutcome.NOT_FOUND;
+                    decidedNow.add(order);
+                } else if (!remaining.isLessThan(price)) {
+                    remaining = remaining.minus(price);
+                    outcome = DebitOutcome.DEBITED;
+                    decidedNow.add(order);
+                } else {
+                    outcome = DebitOutcome.INSUFFICIENT;
+                    decidedNow.add(order);
+                }
+                decided.put(key, outcome);
+            }
+            order.getOrdersDTO().setOrder_status(outcome == DebitOutcome.DEBITED
+                    ? OrderStatusEnum.COMPLETED.name()
+                    : OrderStatusEnum.FAILED.name());
+            outcomes.add(outcome);
+        }
+        return outcomes;
+    }
+
+    private boolean isCompleted(OrdersDTOSend order) {
+        return OrderStatusEnum.COMPLETED.name().equals(order.getOrdersDTO().getOrder_status());
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.project.payment.balance;
+
+// result of a guarded debit, derived from how many balance rows the UPDATE touched
+public enum DebitOutcome {
+    DEBITED,
+    INSUFFICIENT,
+    NOT_FOUND
+}
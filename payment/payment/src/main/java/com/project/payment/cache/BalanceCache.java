@@ -0,0 +1,111 @@
+package com.project.payment.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.cache.VersionedCache;
+import com.project.payment.balance.Balance;
+import com.project.payment.balance.BalanceSnapshot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+// bounded, TTL based cache of balances by id for the read paths (getBalanceById, the /balance/available
+// pre-check). debits and credits never read it, they stay guarded statements on the row.
+// the pre-check comes in by customer id: a second cache maps it to the balance id, which never changes
+// once assigned, so only the first pre-check of a customer reads the row by customer_id.
+// every write leaves the version it produced behind as a marker, and a loaded snapshot older than the
+// marker is not cached: a read that raced a write cannot put the balance from before the write back.
+// a write on another instance is only seen once the entry expires, so the ttl is kept short
+@Component
+public class BalanceCache implements MeterBinder {
+
+    private final VersionedCache<Long, BalanceSnapshot> cache;
+
+    // customer id -> balance id, not bound to the registry
+    private final VersionedCache<Long, Long> balanceIds;
+
+    public BalanceCache(@Value("${payment.cache.max-size:10000}") int maxSize,
+            @Value("${payment.cache.ttl:PT5S}") Duration ttl,
+            @Value("${payment.cache.customer-index-ttl:PT10M}") Duration indexTtl) {
+        this.cache = new VersionedCache<>("balance", maxSize, ttl, UnaryOperator.identity());
+        this.balanceIds = new VersionedCache<>("balance-customer", maxSize, indexTtl, UnaryOperator.identity());
+    }
+
+    // serve from the cache, otherwise load and remember the balance
+    public Mono<Balance> get(Long id, Function<Long, Mono<BalanceSnapshot>> loader) {
+        return cache.get(id, loader, BalanceSnapshot::getVersion).map(BalanceSnapshot::getBalance);
+    }
+
+    // the balance of a customer: a known balance id is served like get, otherwise the row is loaded by
+    // customer_id, cached and its id remembered for the next pre-check
+    public Mono<Balance> getByCustomer(Long customerId, Function<Long, Mono<BalanceSnapshot>> byCustomer,
+            Function<Long, Mono<BalanceSnapshot>> byId) {
+        Mono<Balance> load = byCustomer.apply(customerId)
+                .doOnNext(snapshot -> {
+                    balanceIds.put(customerId, snapshot.getBalance().getId());
+                    offer(snapshot);
+                })
+                .map(BalanceSnapshot::getBalance);
+        Long id = balanceIds.getIfPresent(customerId);
+        if (id == null) {
+            return load;
+        }
+        return get(id, byId)
+                .filter(balance -> customerId.equals(balance.getCustomer_id()))
+                .switchIfEmpty(Mono.defer(() -> {
+                    balanceIds.invalidate(customerId);
+                    return load;
+                }));
+    }
+
+    public Balance getIfPresent(Long id) {
+        BalanceSnapshot snapshot = cache.getIfPresent(id);
+        return snapshot == null ? null : snapshot.getBalance();
+    }
+
+    // caches a loaded snapshot unless the entry already knows a newer version of the row
+    public void offer(BalanceSnapshot snapshot) {
+        cache.offer(snapshot.getBalance().getId(), snapshot, snapshot.getVersion());
+    }
+
+    // the row was written at version, the cached balance is dropped and loads of older versions are refused.
+    // called when the statement ran, before its commit: until then loads still read the older version.
+    // a rolled back write only keeps the row out of the cache until the marker expires
+    public void invalidate(Long id, long version) {
+        cache.invalidate(id, version);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        balanceIds.invalidateAll();
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    // picked up by Spring Boot like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
+    }
+
+}
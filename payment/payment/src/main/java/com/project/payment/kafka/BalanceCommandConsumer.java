@@ -0,0 +1,34 @@
+package com.project.payment.kafka;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+import com.project.payment.balance.BalanceService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// debit-balance commands of the Kafka saga mode, keyed by customer id so one customer's debits are made
+// one after the other by one consumer. the reply is sent before the offset is committed; a redelivered
+// command gets the stored answer of the first debit and is replied to again
+@Service
+@Slf4j
+public class BalanceCommandConsumer {
+
+    @Autowired
+    private BalanceService balanceService;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @KafkaListener(topics = SagaTopics.DEBIT_BALANCE, groupId = "payment-commands")
+    public void consumeDebitBalance(OrdersDTOSend message) {
+        log.debug("Debit balance command received for order {}", message.getId());
+        OrdersDTOSend reply = balanceService.checkBalanceAndDeduct(message).block();
+        kafkaTemplate.send(SagaTopics.DEBIT_BALANCE_REPLY, String.valueOf(reply.getId()), reply).join();
+    }
+
+}
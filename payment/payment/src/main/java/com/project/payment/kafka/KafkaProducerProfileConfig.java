@@ -0,0 +1,26 @@
+package com.project.payment.kafka;
+
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.kafka.ProducerProfile;
+
+// applies the shared producer profile to the producer factory Spring Boot builds, so the outbox relay sends
+// its batches lingered, compressed and idempotent like the other services. overridable with kafka.producer.*
+@Configuration
+public class KafkaProducerProfileConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "kafka.producer")
+    public ProducerProfile producerProfile() {
+        return new ProducerProfile();
+    }
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(ProducerProfile producerProfile) {
+        return producerFactory -> producerFactory.updateConfigs(producerProfile.toConfig());
+    }
+
+}
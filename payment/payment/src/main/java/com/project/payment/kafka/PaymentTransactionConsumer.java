@@ -0,0 +1,41 @@
+package com.project.payment.kafka;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.idempotency.IdempotencyGuard;
+import com.project.payment.payment.PaymentService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// writes the payment transaction records announced through the outbox, off the balance request path.
+// the relay delivers at least once, so each record is written once per order id through the guard
+@Service
+@Slf4j
+public class PaymentTransactionConsumer {
+
+    public static final String TRANSACTION_SUCCESS = "payment-transaction-success";
+
+    public static final String TRANSACTION_FAIL = "payment-transaction-fail";
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @KafkaListener(topics = TRANSACTION_SUCCESS, groupId = "payment-transaction")
+    public void consumeTransactionSuccess(OrdersDTOSend message) {
+        idempotencyGuard.execute(TRANSACTION_SUCCESS, message.getId(), OrdersDTOSend.class,
+                () -> paymentService.addTransactionDetailsSuccess(message).thenReturn(message)).block();
+    }
+
+    @KafkaListener(topics = TRANSACTION_FAIL, groupId = "payment-transaction")
+    public void consumeTransactionFail(OrdersDTOSend message) {
+        idempotencyGuard.execute(TRANSACTION_FAIL, message.getId(), OrdersDTOSend.class,
+                () -> paymentService.addTransactionDetailsFail(message).thenReturn(message)).block();
+    }
+
+}
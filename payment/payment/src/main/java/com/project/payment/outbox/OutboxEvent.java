@@ -0,0 +1,43 @@
+package com.project.payment.outbox;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// a Kafka message written in the same transaction as the change it announces, sent later by the relay
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("outbox_event")
+public class OutboxEvent {
+
+    @Id
+    private Long id;
+
+    private String topic;
+
+    private String message_key;
+
+    // class of the payload, so the relay can send the same object type the consumers expect
+    private String payload_type;
+
+    private String payload;
+
+    private LocalDateTime created_at;
+
+    private LocalDateTime sent_at;
+
+    // failed sends so far, the relay parks the row once they reach outbox.relay.max-attempts
+    private Integer attempts;
+
+    // set when the row was given up on, a parked row is not sent again until it is cleared by hand
+    private LocalDateTime parked_at;
+
+}
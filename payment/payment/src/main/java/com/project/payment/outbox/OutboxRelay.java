@@ -0,0 +1,142 @@
+package com.project.payment.outbox;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// polls unsent outbox rows in batches, publishes them to Kafka and marks the batch sent.
+// delivery is at least once: a crash between the send and the update sends the batch again.
+// the producer settings come from the shared profile, see KafkaProducerProfileConfig.
+// every batch runs in one transaction holding an advisory lock, so with several payment instances only
+// one of them relays at a time and a row is not sent by each of them. a single relay also keeps the
+// messages of one key in id order, which splitting the rows between instances would not
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    // advisory lock key of the relay, any constant no other code locks on
+    private static final long RELAY_LOCK = 0x6f7574626f78L;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Value("${outbox.relay.interval:PT0.2S}")
+    private Duration interval;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    private Disposable relay;
+
+    @PostConstruct
+    public void start() {
+        relay = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> relayBatch()
+                        .onErrorResume(error -> {
+                            log.error("Outbox relay batch failed: {}", error.getMessage());
+                            return Mono.just(0);
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (relay != null) {
+            relay.dispose();
+        }
+    }
+
+    // another instance holding the lock means there is nothing to do on this tick
+    public Mono<Integer> relayBatch() {
+        Mono<Integer> batch = outboxRepository.tryLockRelay(RELAY_LOCK)
+                .flatMap(locked -> locked ? sendUnsent() : Mono.just(0));
+        return transactionalOperator.transactional(batch);
+    }
+
+    // the whole batch is handed to the producer at once, so it waits for one round of acks instead of one per
+    // row while it holds the lock. the results are then read in id order: the rows up to the first failure
+    // are marked sent, the failed row counts an attempt and it and everything after it are sent again on
+    // the next tick. a row that keeps failing is parked after maxAttempts so it does not stall the relay.
+    // a later row of the same key can be delivered before the retry of a failed one, though with
+    // idempotence on a failed send normally fails the sends queued behind it on its partition as well
+    private Mono<Integer> sendUnsent() {
+        return outboxRepository.findUnsent(batchSize)
+                .collectList()
+                .flatMap(events -> {
+                    List<CompletableFuture<?>> sends = events.stream().map(this::send).toList();
+                    List<Long> sent = new ArrayList<>();
+                    return Flux.range(0, events.size())
+                            .concatMap(i -> Mono.fromFuture(sends.get(i))
+                                    .thenReturn(events.get(i).getId())
+                                    .onErrorResume(error -> recordFailure(events.get(i), error)
+                                            .then(Mono.error(error))))
+                            .doOnNext(sent::add)
+                            .then()
+                            .onErrorResume(error -> Mono.empty())
+                            .then(Mono.defer(() -> markSent(sent)));
+                });
+    }
+
+    // a payload that cannot be read back fails like a send the broker refused
+    private CompletableFuture<?> send(OutboxEvent event) {
+        try {
+            Object payload = objectMapper.readValue(event.getPayload(),
+                    OutboxService.payloadType(event.getPayload_type()));
+            return kafkaTemplate.send(event.getTopic(), event.getMessage_key(), payload);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Mono<Void> recordFailure(OutboxEvent event, Throwable error) {
+        return outboxRepository.recordFailure(event.getId(), maxAttempts, LocalDateTime.now())
+                .doOnNext(parked -> {
+                    if (parked) {
+                        log.error("Outbox event {} to {} parked after {} failed sends: {}", event.getId(),
+                                event.getTopic(), maxAttempts, error.getMessage());
+                    } else {
+                        log.warn("Outbox event {} to {} not sent, batch stopped: {}", event.getId(),
+                                event.getTopic(), error.getMessage());
+                    }
+                })
+                .then();
+    }
+
+    private Mono<Integer> markSent(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return outboxRepository.markSent(ids, LocalDateTime.now());
+    }
+
+}
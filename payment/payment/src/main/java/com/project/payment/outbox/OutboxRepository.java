@@ -0,0 +1,37 @@
+package com.project.payment.outbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface OutboxRepository extends R2dbcRepository<OutboxEvent, Long> {
+
+    // held until the transaction ends, so only one payment instance relays at a time
+    @Query("SELECT pg_try_advisory_xact_lock(:lockId)")
+    Mono<Boolean> tryLockRelay(long lockId);
+
+    @Query("SELECT * FROM outbox_event WHERE sent_at IS NULL AND parked_at IS NULL ORDER BY id LIMIT :limit")
+    Flux<OutboxEvent> findUnsent(int limit);
+
+    @Modifying
+    @Query("UPDATE outbox_event SET sent_at = :sentAt WHERE id IN (:ids)")
+    Mono<Integer> markSent(List<Long> ids, LocalDateTime sentAt);
+
+    // counts a failed send and parks the row once it reached maxAttempts; true when it was parked
+    @Query("UPDATE outbox_event SET attempts = attempts + 1,"
+            + " parked_at = CASE WHEN attempts + 1 >= :maxAttempts THEN :now END"
+            + " WHERE id = :id RETURNING parked_at IS NOT NULL")
+    Mono<Boolean> recordFailure(Long id, int maxAttempts, LocalDateTime now);
+
+    // events already recorded for the message keys, whether sent or not
+    @Query("SELECT * FROM outbox_event WHERE message_key IN (:keys) AND topic IN (:topics)")
+    Flux<OutboxEvent> findByKeys(Collection<String> keys, Collection<String> topics);
+
+}
@@ -0,0 +1,58 @@
+package com.project.payment.outbox;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+
+// call record() inside the transaction of the change, the relay publishes the row afterwards
+@Service
+public class OutboxService {
+
+    // the payload types an outbox row may name. the relay turns payload_type back into a class through this
+    // map only, so a value in the table can never make it load an arbitrary class
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            OrdersDTOSend.class.getName(), OrdersDTOSend.class);
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public Mono<OutboxEvent> record(String topic, String key, Object payload) {
+        return Mono.fromCallable(() -> OutboxEvent.builder()
+                .topic(topic)
+                .message_key(key)
+                .payload_type(payloadType(payload.getClass().getName()).getName())
+                .payload(toJson(payload))
+                .created_at(LocalDateTime.now())
+                .attempts(0)
+                .build())
+                .flatMap(outboxRepository::save);
+    }
+
+    public static Class<?> payloadType(String name) {
+        Class<?> type = PAYLOAD_TYPES.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Outbox payload type not allowed: " + name);
+        }
+        return type;
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload " + payload.getClass(), e);
+        }
+    }
+
+}
@@ -0,0 +1,3 @@
+-- row version of the balance, bumped by every statement that changes the row. BalanceCache compares it
+-- to tell a loaded balance from one that was written since
+ALTER TABLE balance ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,21 @@
+CREATE TABLE IF NOT EXISTS outbox_event (
+    id BIGSERIAL PRIMARY KEY,
+    topic VARCHAR(255) NOT NULL,
+    message_key VARCHAR(255),
+    payload_type VARCHAR(255) NOT NULL,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP
+);
+
+-- failed sends of the row, and when the relay gave up on it
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE outbox_event ADD COLUMN IF NOT EXISTS parked_at TIMESTAMP;
+
+-- the relay only ever scans the unsent rows it has not parked
+DROP INDEX IF EXISTS outbox_event_unsent_idx;
+CREATE INDEX IF NOT EXISTS outbox_event_pending_idx ON outbox_event (id)
+    WHERE sent_at IS NULL AND parked_at IS NULL;
+
+-- the coalesced debits look up the transactions already recorded for their orders
+CREATE INDEX IF NOT EXISTS outbox_event_message_key_idx ON outbox_event (message_key);
@@ -0,0 +1,94 @@
+package com.project.payment.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.payment.balance.Balance;
+import com.project.payment.balance.BalanceSnapshot;
+
+import reactor.core.publisher.Mono;
+
+public class BalanceCacheTest {
+
+    private BalanceSnapshot snapshot(Long id, long version) {
+        return new BalanceSnapshot(Balance.builder()
+                .id(id)
+                .customer_id(id)
+                .build(), version);
+    }
+
+    @Test
+    void loadsOnceAndServesFromCache() {
+        BalanceCache cache = new BalanceCache(10, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        AtomicInteger loads = new AtomicInteger();
+
+        Balance first = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Mono.just(snapshot(id, 0));
+        }).block();
+        Balance second = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Mono.just(snapshot(id, 0));
+        }).block();
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void aWriteDropsTheEntryAndRefusesOlderLoads() {
+        BalanceCache cache = new BalanceCache(10, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        cache.offer(snapshot(1L, 3));
+
+        cache.invalidate(1L, 4);
+        assertNull(cache.getIfPresent(1L));
+
+        // a load that read the row before the write committed
+        cache.offer(snapshot(1L, 3));
+        assertNull(cache.getIfPresent(1L));
+
+        BalanceSnapshot current = snapshot(1L, 4);
+        cache.offer(current);
+        assertSame(current.getBalance(), cache.getIfPresent(1L));
+    }
+
+    @Test
+    void thePreCheckByCustomerReadsThroughTheCache() {
+        BalanceCache cache = new BalanceCache(10, Duration.ofMinutes(1), Duration.ofMinutes(10));
+        AtomicInteger byCustomer = new AtomicInteger();
+        AtomicInteger byId = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            Balance balance = cache.getByCustomer(7L, customerId -> {
+                byCustomer.incrementAndGet();
+                return Mono.just(snapshot(customerId, 0));
+            }, id -> {
+                byId.incrementAndGet();
+                return Mono.just(snapshot(id, 0));
+            }).block();
+            assertEquals(7L, balance.getId());
+        }
+        assertEquals(1, byCustomer.get());
+        assertEquals(0, byId.get());
+
+        // after a debit only the balance is loaded again, by its id
+        cache.invalidate(7L, 1);
+        cache.getByCustomer(7L, customerId -> {
+            byCustomer.incrementAndGet();
+            return Mono.just(snapshot(customerId, 1));
+        }, id -> {
+            byId.incrementAndGet();
+            return Mono.just(snapshot(id, 1));
+        }).block();
+        assertEquals(1, byCustomer.get());
+        assertEquals(1, byId.get());
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.project.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.project.product.bulk.BulkImportService;
+import com.project.product.bulk.BulkReport;
+
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/product/bulk")
+public class BulkImportController {
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @PostMapping(value = "/import", consumes = { MediaType.APPLICATION_NDJSON_VALUE,
+            "text/csv" }) // create (no id) or update (id) products from an NDJSON or CSV feed
+    public Mono<BulkReport> importProducts(ServerHttpRequest request) {
+        return bulkImportService.importProducts(request.getBody(), request.getHeaders().getContentType());
+    }
+
+    @PostMapping(value = "/stock", consumes = { MediaType.APPLICATION_NDJSON_VALUE,
+            "text/csv" }) // add id, quantity lines to the stock, negative quantities take stock off
+    public Mono<BulkReport> adjustStock(ServerHttpRequest request) {
+        return bulkImportService.adjustStock(request.getBody(), request.getHeaders().getContentType());
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.project.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.page.CursorPage;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/product")
+public class ProductPageController {
+
+    @Autowired
+    private ProductService productService;
+
+    @GetMapping("/page") // display products page by page, pass nextCursor back as cursor
+    public Mono<CursorPage<Product>> getProductPage(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return productService.getProductPage(cursor, size);
+    }
+
+    @GetMapping(value = "/export", produces = { MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE }) // stream every product as NDJSON or server-sent events
+    public Flux<Product> exportProducts() {
+        return productService.streamProducts();
+    }
+
+}
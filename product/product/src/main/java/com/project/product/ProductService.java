@@ -1,16 +1,40 @@
 package com.project.product;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
+import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.stereotype.Service;
 
+import com.example.DTO.money.Money;
+import com.example.DTO.order.BasketDTOSend;
+import com.example.DTO.order.BasketItemDTO;
 import com.example.DTO.order.OrdersDTOSend;
 import com.example.DTO.product.ProductDTO;
 import com.example.enume.OrderStatusEnum;
+import com.example.idempotency.IdempotencyGuard;
+import com.example.logging.LogSampling;
+import com.example.metrics.MonoTimer;
+import com.example.page.CursorPage;
+import com.example.page.KeysetPages;
+import com.project.product.cache.ProductCatalogCache;
 import com.project.product.exception.ProductException;
+import com.project.product.hotsku.HotSkuStock;
+import com.project.product.reservation.CoalescedReservations;
+import com.project.product.reservation.ReleasedStock;
+import com.project.product.reservation.ReservationStatus;
+import com.project.product.reservation.StockReservation;
+import com.project.product.reservation.StockReservationRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -20,9 +44,49 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class ProductService {
 
+    // success lines of the order path, kept 1 in logging.sampling.success-every per path
+    private static final Marker STOCK_RESERVED = LogSampling.path("product.stock-reserved");
+
+    private static final Marker STOCK_RE_ADDED = LogSampling.path("product.stock-re-added");
+
+    private static final Marker BASKET_RESERVED = LogSampling.path("product.basket-reserved");
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductStockRepository productStockRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private HotSkuStock hotSkuStock;
+
+    @Autowired
+    private CoalescedReservations coalescedReservations;
+
+    @Autowired
+    private IdempotencyGuard idempotencyGuard;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${paging.max-page-size:500}")
+    private int maxPageSize;
+
+    private KeysetPages<Product> productPages;
+
+    // how long stock stays held for an order nobody confirms or releases, the sweeper gives it back after that
+    @Value("${product.reservation.ttl:PT15M}")
+    private Duration reservationTtl;
+
     public Flux<Product> getAllProduct() {
         return productRepository.findAll()
                 .switchIfEmpty(Mono.error(
@@ -30,6 +94,20 @@ public class ProductService {
                                 String.format("Can't display all product"))));
     }
 
+    @PostConstruct
+    void initPages() {
+        productPages = new KeysetPages<>(template, Product.class, Product::getId, maxPageSize, ProductException::new);
+    }
+
+    // keyset pagination on id, so every page costs the same no matter how deep it is
+    public Mono<CursorPage<Product>> getProductPage(String cursor, Integer size) {
+        return productPages.page(cursor, size);
+    }
+
+    public Flux<Product> streamProducts() {
+        return productPages.stream();
+    }
+
     // Method to add a product
     public Mono<Product> addProduct(@Valid ProductDTO product) {
         Product products = Product.builder()
@@ -42,22 +120,25 @@ public class ProductService {
                 // .published_at(LocalDateTime.now())
                 .build();
 
+        // save hands back the entity with its generated id, reading the row again only cost a round trip
         return productRepository.save(products)
-                .flatMap(savedProduct -> productRepository.findById(savedProduct.getId()))
+                .doOnNext(productCatalogCache::put)
                 .switchIfEmpty(Mono.error(
                         new ProductException(
                                 String.format("Cannot add product"))));
     }
 
     public Mono<Product> getById(Long id) {
-        return productRepository.findById(id)
+        return productCatalogCache.get(id, productRepository::findById)
                 .switchIfEmpty(Mono.error(
                         new ProductException(
                                 String.format("Product not found. Id: %d", id))));
     }
 
+    // a hot product has its logged reservations written first, so the edited row is what the counter follows
     public Mono<Product> updateProduct(Long id, Product product) {
-        return productRepository.findById(Long.valueOf(id))
+        Mono<Long> flushed = hotSkuStock.isHot(id) ? hotSkuStock.flush() : Mono.just(0L);
+        return flushed.then(productRepository.findById(Long.valueOf(id)))
                 .map(Optional::of)
                 .defaultIfEmpty(Optional.empty())
                 .flatMap(optionalBook -> {
@@ -67,84 +148,296 @@ public class ProductService {
                     }
                     return Mono.empty();
                 })
+                .doOnNext(saved -> hotSkuStock.reset(id, saved.getPrice(), saved.getStock_quantity()))
+                .doOnNext(productCatalogCache::put) // write-through
                 .switchIfEmpty(Mono.error(
                         new ProductException(
                                 String.format("Cannot update product"))));
     }
 
     public Mono<Product> addStockQuantity(@Valid Long id, @Valid Integer sumItem) {
-        return productRepository.findById(id)
-                .flatMap(product -> {
-                    product.setStock_quantity(product.getStock_quantity() + sumItem);
-                    product.setPublished_at(LocalDateTime.now());
-                    return productRepository.save(product);
-                })
+        return productStockRepository.addStock(id, sumItem)
+                .doOnNext(product -> product.setStock_quantity(
+                        hotSkuStock.restock(id, new ReleasedStock(sumItem, product.getStock_quantity()))))
+                .doOnNext(productCatalogCache::put)
                 .switchIfEmpty(Mono.error(new ProductException("Product not found. Id: " + id)));
     }
 
-    public Mono<OrdersDTOSend> checkAndDeductStock(@Valid OrdersDTOSend ordersDTO) {
+    // read-only look at whether the order could be served, nothing is deducted. the stock is read from the
+    // database (the counter for a hot product), the answer carries the price and total so the orchestrator
+    // can check the balance against it
+    public Mono<OrdersDTOSend> checkAvailability(@Valid OrdersDTOSend ordersDTO) {
         Long productId = ordersDTO.getOrdersDTO().getOrderItems().getProduct_id();
         Integer orderQuantity = ordersDTO.getOrdersDTO().getOrderItems().getQuantity();
 
-        log.info("Starting checkAndDeductStock for productId: {}, orderQuantity: {}", productId, orderQuantity);
-
         return productRepository.findById(productId)
-                .doOnNext(product -> log.info("Product found: " + product.toString()))
-                .flatMap(product -> {
-                    if (product.getStock_quantity() >= orderQuantity) {
-                        product.setStock_quantity(product.getStock_quantity() - orderQuantity);
-                        product.setPublished_at(LocalDateTime.now());
-                        ordersDTO.getOrdersDTO().getOrderItems().setPrice(product.getPrice()); // set prioe
-                        ordersDTO.getOrdersDTO().setTotal_amount(product.getPrice() * orderQuantity);
-                        return productRepository.save(product)
-                                .flatMap(saved -> {
-                                    OrdersDTOSend ordersDTOSend = new OrdersDTOSend(ordersDTO.getId(),
-                                            ordersDTO.getOrdersDTO(), ordersDTO.getOrder_date());
-                                    log.info("Product --> order (SUCCESS) for item: " + ordersDTOSend);
-                                    ordersDTOSend.getOrdersDTO().setOrder_status(OrderStatusEnum.PROCESSING.name());
-                                    return Mono.just(ordersDTOSend);
-                                });
-                    } else {
-                        OrdersDTOSend orderDTOSend = new OrdersDTOSend(ordersDTO.getId(), ordersDTO.getOrdersDTO(),
-                                ordersDTO.getOrder_date());
-                        log.info("Product --> order (FAIL) for item: " + orderDTOSend);
-                        orderDTOSend.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
-                        orderDTOSend.getOrdersDTO().getOrderItems().setPrice(product.getPrice());
-                        return Mono.just(orderDTOSend);
-                    }
+                .map(product -> {
+                    Money price = Money.ofMajor(product.getPrice());
+                    ordersDTO.getOrdersDTO().getOrderItems().setPrice(product.getPrice());
+                    ordersDTO.getOrdersDTO().setTotal_amount(price.times(orderQuantity).toFloat());
+                    Integer stock = hotSkuStock.isHot(productId)
+                            ? hotSkuStock.available(productId)
+                            : product.getStock_quantity();
+                    ordersDTO.getOrdersDTO().setOrder_status(stock >= orderQuantity
+                            ? OrderStatusEnum.PROCESSING.name()
+                            : OrderStatusEnum.FAILED.name());
+                    return ordersDTO;
                 })
-                .switchIfEmpty(Mono.defer(() -> {
-                    log.info("Product not found --> order (FAIL) for item: " + ordersDTO);
+                .switchIfEmpty(Mono.fromSupplier(() -> {
                     ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
-                    Mono.error(new ProductException("Product not found. Id: " + productId));
-                    return Mono.just(ordersDTO);
+                    return ordersDTO;
                 }));
+    }
 
+    // a retried or redelivered order gets its first answer back instead of a second deduction. a coalesced
+    // reservation commits in its batch's own transaction, so the claim is not held open while it waits
+    public Mono<OrdersDTOSend> checkAndDeductStock(@Valid OrdersDTOSend ordersDTO) {
+        Long productId = ordersDTO.getOrdersDTO().getOrderItems().getProduct_id();
+        if (coalescedReservations.isEnabled() && !hotSkuStock.isHot(productId)) {
+            return idempotencyGuard.executeDetached("check-deduct-stock", ordersDTO.getId(), OrdersDTOSend.class,
+                    () -> deductStock(ordersDTO));
+        }
+        return idempotencyGuard.execute("check-deduct-stock", ordersDTO.getId(), OrdersDTOSend.class,
+                () -> deductStock(ordersDTO));
     }
 
+    // kept for orchestrators that still compensate over http, it releases the hold of the order like
+    // the order-update-fail event does, so whichever comes second finds nothing left to give back
     public Mono<OrdersDTOSend> reAddStock(@Valid OrdersDTOSend ordersDTO) {
-        Long product_id = ordersDTO.getOrdersDTO().getOrderItems().getProduct_id();
+        return idempotencyGuard.execute("re-add-stock", ordersDTO.getId(), OrdersDTOSend.class,
+                () -> releaseReservation(ordersDTO.getId()).thenReturn(ordersDTO));
+    }
+
+    // the stock is checked, deducted and held for the order by one conditional statement, the product is
+    // only read again when the reservation is refused, to tell a missing product from a short one
+    private Mono<OrdersDTOSend> deductStock(OrdersDTOSend ordersDTO) {
+        Long productId = ordersDTO.getOrdersDTO().getOrderItems().getProduct_id();
         Integer orderQuantity = ordersDTO.getOrdersDTO().getOrderItems().getQuantity();
-        log.info("Message received, re-add the stock for id: %d by %d", product_id, orderQuantity);
-
-        return getById(product_id)
-                .flatMap(savedProduct -> {
-                    savedProduct.setStock_quantity(savedProduct.getStock_quantity() + orderQuantity);
-                    savedProduct.setPublished_at(LocalDateTime.now());
-                    return productRepository.save(savedProduct)
-                            .map(updatedProduct -> {
-                                log.info("Product --> order (PAYMENT FAIL) for item: " + ordersDTO);
-                                return ordersDTO;
-                            });
+
+        log.debug("Starting checkAndDeductStock for productId: {}, orderQuantity: {}", productId, orderQuantity);
+
+        // product.stock.reserve times the conditional UPDATE and its hold alone
+        return MonoTimer.time(meterRegistry, "product.stock.reserve", Tags.empty(),
+                reserve(ordersDTO.getId(), productId, orderQuantity))
+                .map(reserved -> {
+                    productCatalogCache.updateStock(productId, reserved.getRemainingStock());
+                    // exact long arithmetic on minor units, converted once for the Float fields of the DTO
+                    Money total = reserved.getPrice().times(orderQuantity);
+                    ordersDTO.getOrdersDTO().getOrderItems().setPrice(reserved.getPrice().toFloat()); // set price
+                    ordersDTO.getOrdersDTO().setTotal_amount(total.toFloat());
+                    OrdersDTOSend ordersDTOSend = new OrdersDTOSend(ordersDTO.getId(),
+                            ordersDTO.getOrdersDTO(), ordersDTO.getOrder_date());
+                    log.atInfo().addMarker(STOCK_RESERVED)
+                            .addKeyValue("orderId", ordersDTO.getId())
+                            .addKeyValue("productId", productId)
+                            .addKeyValue("quantity", orderQuantity)
+                            .log("Product --> order (SUCCESS)");
+                    ordersDTOSend.getOrdersDTO().setOrder_status(OrderStatusEnum.PROCESSING.name());
+                    return ordersDTOSend;
+                })
+                .switchIfEmpty(Mono.defer(() -> productCatalogCache.get(productId, productRepository::findById)
+                        .map(product -> {
+                            OrdersDTOSend orderDTOSend = new OrdersDTOSend(ordersDTO.getId(),
+                                    ordersDTO.getOrdersDTO(), ordersDTO.getOrder_date());
+                            log.atInfo()
+                                    .addKeyValue("orderId", ordersDTO.getId())
+                                    .addKeyValue("productId", productId)
+                                    .addKeyValue("quantity", orderQuantity)
+                                    .log("Product --> order (FAIL) insufficient stock");
+                            orderDTOSend.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                            orderDTOSend.getOrdersDTO().getOrderItems().setPrice(product.getPrice());
+                            return orderDTOSend;
+                        })
+                        .switchIfEmpty(Mono.fromSupplier(() -> {
+                            log.atInfo()
+                                    .addKeyValue("orderId", ordersDTO.getId())
+                                    .addKeyValue("productId", productId)
+                                    .log("Product not found --> order (FAIL)");
+                            ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                            return ordersDTO;
+                        }))));
+    }
+
+    // every line of the basket is reserved by one multi-row statement, all or nothing
+    public Mono<BasketDTOSend> checkAndDeductBasket(@Valid BasketDTOSend basket) {
+        Map<Long, Integer> quantities = quantitiesOf(basket);
+        log.debug("Starting checkAndDeductBasket for order: {}, products: {}", basket.getId(), quantities.size());
+
+        return reserveAll(basket.getId(), quantities)
+                .map(reserved -> {
+                    reserved.forEach((id, stock) -> productCatalogCache.updateStock(id, stock.getRemainingStock()));
+                    Money total = Money.ZERO;
+                    for (BasketItemDTO item : basket.getItems()) {
+                        Money price = reserved.get(item.getProduct_id()).getPrice();
+                        item.setPrice(price);
+                        total = total.plus(price.times(item.getQuantity()));
+                    }
+                    basket.setTotal_amount(total);
+                    basket.setOrder_status(OrderStatusEnum.PROCESSING.name());
+                    log.atInfo().addMarker(BASKET_RESERVED)
+                            .addKeyValue("orderId", basket.getId())
+                            .addKeyValue("products", quantities.size())
+                            .log("Product --> order (SUCCESS) for basket");
+                    return basket;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.atInfo()
+                            .addKeyValue("orderId", basket.getId())
+                            .addKeyValue("products", quantities.size())
+                            .log("Product --> order (FAIL) for basket");
+                    basket.setOrder_status(OrderStatusEnum.FAILED.name());
+                    return basket;
+                }));
+    }
+
+    public Mono<BasketDTOSend> reAddBasketStock(@Valid BasketDTOSend basket) {
+        return releaseReservation(basket.getId()).thenReturn(basket);
+    }
+
+    public Flux<StockReservation> getReservations(Long orderId) {
+        return stockReservationRepository.findByOrderId(orderId);
+    }
+
+    // the orchestrator confirms the hold of a paid order before it announces the order COMPLETED. the order
+    // comes back FAILED when its hold expired and the stock is gone since, so it is not announced COMPLETED
+    public Mono<OrdersDTOSend> confirmStock(@Valid OrdersDTOSend ordersDTO) {
+        return confirmReservation(ordersDTO.getId())
+                .map(kept -> {
+                    if (!kept) {
+                        ordersDTO.getOrdersDTO().setOrder_status(OrderStatusEnum.FAILED.name());
+                    }
+                    return ordersDTO;
+                });
+    }
+
+    // the order completed, its held stock is kept for good. confirming again or an order that reserved
+    // nothing keeps what there is. a hold the sweeper released because the confirm came after its expiry
+    // takes its stock again if it is still there; false when it is not
+    public Mono<Boolean> confirmReservation(Long orderId) {
+        return hotSkuStock.flushIfUnflushed(orderId)
+                .then(stockReservationRepository.confirm(orderId))
+                .then(stockReservationRepository.findByOrderId(orderId)
+                        .filter(hold -> ReservationStatus.RELEASED.name().equals(hold.getStatus()))
+                        .collectMap(StockReservation::getProduct_id, StockReservation::getQuantity))
+                .flatMap(released -> released.isEmpty() ? Mono.just(true) : retake(orderId, released));
+    }
+
+    // a hot product gives the stock back from its counter before the row, like a bulk decrement
+    private Mono<Boolean> retake(Long orderId, Map<Long, Integer> released) {
+        Map<Long, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : released.entrySet()) {
+            if (hotSkuStock.isHot(line.getKey())) {
+                if (!hotSkuStock.takeStock(line.getKey(), line.getValue())) {
+                    giveBack(taken);
+                    return Mono.fromSupplier(() -> stockGone(orderId));
+                }
+                taken.put(line.getKey(), line.getValue());
+            }
+        }
+        return stockReservationRepository.retake(orderId, released)
+                .doOnError(error -> giveBack(taken))
+                .map(stock -> {
+                    if (stock.isEmpty()) {
+                        giveBack(taken);
+                        return stockGone(orderId);
+                    }
+                    stock.forEach((id, remaining) -> productCatalogCache.updateStock(id,
+                            taken.containsKey(id) ? hotSkuStock.available(id) : remaining));
+                    log.atWarn().addKeyValue("orderId", orderId)
+                            .addKeyValue("products", stock.size())
+                            .log("Expired hold taken again on confirm");
+                    return true;
+                });
+    }
+
+    private void giveBack(Map<Long, Integer> taken) {
+        taken.forEach((id, quantity) -> hotSkuStock.restock(id, new ReleasedStock(quantity, null)));
+        taken.clear();
+    }
+
+    private boolean stockGone(Long orderId) {
+        log.atError().addKeyValue("orderId", orderId).log("Hold expired before the confirm and its stock is gone");
+        return false;
+    }
+
+    // the order failed, whatever it still holds goes back on the stock
+    public Mono<Map<Long, ReleasedStock>> releaseReservation(Long orderId) {
+        return hotSkuStock.flushIfUnflushed(orderId)
+                .then(stockReservationRepository.release(orderId))
+                .doOnNext(released -> {
+                    released.forEach((id, stock) -> productCatalogCache.updateStock(id,
+                            hotSkuStock.restock(id, stock)));
+                    if (!released.isEmpty()) {
+                        log.atInfo().addMarker(STOCK_RE_ADDED)
+                                .addKeyValue("orderId", orderId)
+                                .addKeyValue("products", released.size())
+                                .log("Product --> order (FAIL) held stock released");
+                    }
                 });
     }
 
+    // a hot product is reserved in memory, every other one by the conditional statement or, with
+    // coalescing on, together with the other reservations of the product arriving at the same time
+    private Mono<ReservedStock> reserve(Long orderId, Long productId, Integer quantity) {
+        if (hotSkuStock.isHot(productId)) {
+            return hotSkuStock.reserve(orderId, productId, quantity, holdUntil());
+        }
+        return coalescedReservations.isEnabled()
+                ? coalescedReservations.reserve(orderId, productId, quantity, holdUntil())
+                : productStockRepository.reserve(orderId, productId, quantity, holdUntil());
+    }
+
+    // the hot lines of a basket are taken in memory first and only logged once the other lines are
+    // reserved too, so a basket refused by the database gives the memory back without a trace
+    private Mono<Map<Long, ReservedStock>> reserveAll(Long orderId, Map<Long, Integer> quantities) {
+        if (!hotSkuStock.anyHot(quantities.keySet())) {
+            return productStockRepository.reserveAll(orderId, quantities, holdUntil());
+        }
+        Map<Long, Integer> hot = new LinkedHashMap<>();
+        Map<Long, Integer> cold = new LinkedHashMap<>();
+        quantities.forEach((id, quantity) -> (hotSkuStock.isHot(id) ? hot : cold).put(id, quantity));
+
+        return Mono.defer(() -> {
+            Map<Long, ReservedStock> taken = hotSkuStock.take(hot);
+            if (taken == null) {
+                return Mono.empty();
+            }
+            Mono<Map<Long, ReservedStock>> rest = cold.isEmpty()
+                    ? Mono.just(Map.of())
+                    : productStockRepository.reserveAll(orderId, cold, holdUntil())
+                            .doOnError(error -> hotSkuStock.giveBack(hot));
+            return rest
+                    .flatMap(reserved -> hotSkuStock.hold(orderId, hot, holdUntil())
+                            .then(Mono.fromSupplier(() -> {
+                                Map<Long, ReservedStock> all = new LinkedHashMap<>(taken);
+                                all.putAll(reserved);
+                                return all;
+                            })))
+                    .switchIfEmpty(Mono.fromRunnable(() -> hotSkuStock.giveBack(hot)));
+        });
+    }
+
+    private LocalDateTime holdUntil() {
+        return LocalDateTime.now().plus(reservationTtl);
+    }
+
+    // the same product on two lines is reserved once with the summed quantity
+    private Map<Long, Integer> quantitiesOf(BasketDTOSend basket) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (BasketItemDTO item : basket.getItems()) {
+            quantities.merge(item.getProduct_id(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
     public Mono<Void> deleteById(Long id) {
-        return productRepository.deleteById(id);
+        return productRepository.deleteById(id)
+                .then(Mono.fromRunnable(() -> productCatalogCache.invalidate(id)));
     }
 
     public Mono<Void> deleteAll() {
-        return productRepository.deleteAll();
+        return productRepository.deleteAll()
+                .then(Mono.fromRunnable(productCatalogCache::invalidateAll));
     }
 
 }
@@ -0,0 +1,26 @@
+package com.project.product;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import reactor.core.publisher.Mono;
+
+// stock changes done as a single conditional statement, so concurrent orders cannot oversell.
+// stock taken for an order is recorded as a HELD stock_reservation row in the same statement,
+// settled later through StockReservationRepository
+public interface ProductStockRepository {
+
+    // take the quantity from the stock if enough is left and hold it for the order until expiresAt,
+    // empty when the product is missing or short
+    Mono<ReservedStock> reserve(Long orderId, Long id, Integer quantity, LocalDateTime expiresAt);
+
+    // price and stock of the product, its row locked until the surrounding transaction ends; empty when missing
+    Mono<ReservedStock> lockStock(Long id);
+
+    // put the quantity on the stock and return the updated product, empty when the product is missing
+    Mono<Product> addStock(Long id, Integer quantity);
+
+    // reserve every product id -> quantity for the order or none of them, empty when any line is missing or short
+    Mono<Map<Long, ReservedStock>> reserveAll(Long orderId, Map<Long, Integer> quantities, LocalDateTime expiresAt);
+
+}
@@ -0,0 +1,135 @@
+package com.project.product;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.DTO.money.Money;
+import com.project.product.reservation.ReservationStatus;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    // every row the UPDATE took becomes a HELD reservation of the order, expiring at :expiresAt
+    private static final String HOLD_TAKEN = " held AS ("
+            + " INSERT INTO stock_reservation (order_id, product_id, quantity, status, expires_at, created_at)"
+            + " SELECT :orderId, id, quantity, :held, :expiresAt, :now FROM taken)";
+
+    private final R2dbcEntityTemplate template;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final String table;
+
+    public ProductStockRepositoryImpl(R2dbcEntityTemplate template, TransactionalOperator transactionalOperator) {
+        this.template = template;
+        this.transactionalOperator = transactionalOperator;
+        this.databaseClient = template.getDatabaseClient();
+        this.table = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Product.class)
+                .getTableName()
+                .toSql(IdentifierProcessing.NONE);
+    }
+
+    // the UPDATE and the insert of the hold are one statement: the hold exists exactly when the stock was taken.
+    // a second hold of the same order line fails on the unique key and takes nothing
+    @Override
+    public Mono<ReservedStock> reserve(Long orderId, Long id, Integer quantity, LocalDateTime expiresAt) {
+        return databaseClient.sql("WITH taken AS ("
+                + " UPDATE " + table
+                + " SET stock_quantity = stock_quantity - :quantity, published_at = :now"
+                + " WHERE id = :id AND stock_quantity >= :quantity"
+                + " RETURNING id, price, stock_quantity, CAST(:quantity AS INTEGER) AS quantity),"
+                + HOLD_TAKEN
+                + " SELECT price, stock_quantity FROM taken")
+                .bind("quantity", quantity)
+                .bind("now", LocalDateTime.now())
+                .bind("id", id)
+                .bind("orderId", orderId)
+                .bind("held", ReservationStatus.HELD.name())
+                .bind("expiresAt", expiresAt)
+                .map(row -> new ReservedStock(
+                        Money.ofMajor(row.get("price", Float.class)),
+                        row.get("stock_quantity", Integer.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<ReservedStock> lockStock(Long id) {
+        return databaseClient.sql("SELECT price, stock_quantity FROM " + table + " WHERE id = :id FOR UPDATE")
+                .bind("id", id)
+                .map(row -> new ReservedStock(
+                        Money.ofMajor(row.get("price", Float.class)),
+                        row.get("stock_quantity", Integer.class)))
+                .one();
+    }
+
+    @Override
+    public Mono<Product> addStock(Long id, Integer quantity) {
+        return databaseClient.sql("UPDATE " + table
+                + " SET stock_quantity = stock_quantity + :quantity, published_at = :now"
+                + " WHERE id = :id"
+                + " RETURNING *")
+                .bind("quantity", quantity)
+                .bind("now", LocalDateTime.now())
+                .bind("id", id)
+                .map((row, metadata) -> template.getConverter().read(Product.class, row, metadata))
+                .one();
+    }
+
+    // one multi-row UPDATE joined on the unnested id/quantity arrays. rows that cannot cover their
+    // quantity are simply not updated, so a short count means the basket failed and the transaction
+    // is rolled back to give the other lines their stock back
+    @Override
+    public Mono<Map<Long, ReservedStock>> reserveAll(Long orderId, Map<Long, Integer> quantities,
+            LocalDateTime expiresAt) {
+        Long[] ids = quantities.keySet().toArray(new Long[0]);
+        Integer[] amounts = quantities.values().toArray(new Integer[0]);
+
+        Mono<Map<Long, ReservedStock>> reserve = databaseClient.sql("WITH taken AS ("
+                + " UPDATE " + table + " AS p"
+                + " SET stock_quantity = p.stock_quantity - v.quantity, published_at = :now"
+                + " FROM unnest(CAST(:ids AS BIGINT[]), CAST(:quantities AS INTEGER[])) AS v(id, quantity)"
+                + " WHERE p.id = v.id AND p.stock_quantity >= v.quantity"
+                + " RETURNING p.id, p.price, p.stock_quantity, v.quantity),"
+                + HOLD_TAKEN
+                + " SELECT id, price, stock_quantity FROM taken")
+                .bind("now", LocalDateTime.now())
+                .bind("ids", ids)
+                .bind("quantities", amounts)
+                .bind("orderId", orderId)
+                .bind("held", ReservationStatus.HELD.name())
+                .bind("expiresAt", expiresAt)
+                .map(row -> Map.entry(
+                        row.get("id", Long.class),
+                        new ReservedStock(
+                                Money.ofMajor(row.get("price", Float.class)),
+                                row.get("stock_quantity", Integer.class))))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMap(reserved -> reserved.size() == quantities.size()
+                        ? Mono.just(reserved)
+                        : Mono.error(new IncompleteReservationException()));
+
+        return transactionalOperator.transactional(reserve)
+                .onErrorResume(IncompleteReservationException.class, error -> Mono.empty());
+    }
+
+    // only used to roll the basket transaction back, so no stack trace is filled in
+    private static class IncompleteReservationException extends RuntimeException {
+
+        IncompleteReservationException() {
+            super("Basket could not be reserved", null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.project.product;
+
+import com.example.DTO.money.Money;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// outcome of a successful stock reservation, read back from the same UPDATE that took the stock
+@Getter
+@AllArgsConstructor
+public class ReservedStock {
+
+    private final Money price;
+
+    private final Integer remainingStock;
+
+}
@@ -0,0 +1,51 @@
+package com.project.product;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.DTO.order.BasketDTOSend;
+import com.example.DTO.order.OrdersDTOSend;
+import com.project.product.reservation.StockReservation;
+
+import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/inventory")
+public class StockReservationController {
+
+    @Autowired
+    private ProductService productService;
+
+    @PostMapping("/check-availability") // check the stock of an order without deducting it
+    public Mono<OrdersDTOSend> checkAvailability(@Valid @RequestBody OrdersDTOSend ordersDTO) {
+        return productService.checkAvailability(ordersDTO);
+    }
+
+    @PostMapping("/confirm-stock") // keep the stock held for a paid order
+    public Mono<OrdersDTOSend> confirmStock(@Valid @RequestBody OrdersDTOSend ordersDTO) {
+        return productService.confirmStock(ordersDTO);
+    }
+
+    @PostMapping("/basket/check-deduct-stock") // reserve all lines of a basket in one call
+    public Mono<BasketDTOSend> checkAndDeductBasket(@Valid @RequestBody BasketDTOSend basket) {
+        return productService.checkAndDeductBasket(basket);
+    }
+
+    @PostMapping("/basket/re-add-stock") // give back the stock of a basket whose payment failed
+    public Mono<BasketDTOSend> reAddBasketStock(@Valid @RequestBody BasketDTOSend basket) {
+        return productService.reAddBasketStock(basket);
+    }
+
+    @GetMapping("/reservations/{orderId}") // the stock held, confirmed or released for an order
+    public Flux<StockReservation> getReservations(@PathVariable Long orderId) {
+        return productService.getReservations(orderId);
+    }
+
+}
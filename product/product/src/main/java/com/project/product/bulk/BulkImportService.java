@@ -0,0 +1,236 @@
+package com.project.product.bulk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.project.product.Product;
+import com.project.product.cache.ProductCatalogCache;
+import com.project.product.hotsku.HotSkuStock;
+import com.project.product.reservation.ReleasedStock;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// the supplier feeds: the body is read line by line, cut into batches of batch-size lines and every batch
+// is written with one multi-row statement per kind of change. at most concurrency batches are in flight,
+// and the body is only read as fast as they complete. a line that cannot be applied is reported with its
+// line number and the rest of the feed goes on; a batch the database refuses reports each of its lines.
+// batches are not ordered against each other, so a product should appear in a feed once
+@Service
+@Slf4j
+public class BulkImportService {
+
+    @Autowired
+    private BulkLineReader bulkLineReader;
+
+    @Autowired
+    private BulkProductRepository bulkProductRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private HotSkuStock hotSkuStock;
+
+    @Value("${product.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${product.bulk.concurrency:4}")
+    private int concurrency;
+
+    @Value("${product.bulk.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public Mono<BulkReport> importProducts(Flux<DataBuffer> body, MediaType contentType) {
+        return bulkLineReader.read(body, contentType, BulkProductRow.class)
+                .buffer(batchSize)
+                .flatMapSequential(this::importBatch, concurrency)
+                .reduceWith(() -> new BulkReport(maxReportedErrors),
+                        (report, batch) -> report.add(batch.lines(), batch.errors()));
+    }
+
+    public Mono<BulkReport> adjustStock(Flux<DataBuffer> body, MediaType contentType) {
+        return bulkLineReader.read(body, contentType, StockAdjustmentRow.class)
+                .buffer(batchSize)
+                .flatMapSequential(this::adjustBatch, concurrency)
+                .reduceWith(() -> new BulkReport(maxReportedErrors),
+                        (report, batch) -> report.add(batch.lines(), batch.errors()));
+    }
+
+    // lines without id are created by one INSERT, lines with id updated by one UPDATE. of two lines of the
+    // same id in a batch the later one is applied
+    private Mono<BatchResult> importBatch(List<BulkLine<BulkProductRow>> lines) {
+        List<BulkRowError> errors = new ArrayList<>();
+        List<BulkLine<BulkProductRow>> inserts = new ArrayList<>();
+        Map<Long, BulkLine<BulkProductRow>> updates = new TreeMap<>();
+        for (BulkLine<BulkProductRow> line : lines) {
+            String invalid = line.error() != null ? line.error() : validate(line.row());
+            if (invalid != null) {
+                errors.add(new BulkRowError(line.number(), line.row() == null ? null : line.row().getId(),
+                        invalid));
+            } else if (line.row().getId() == null) {
+                inserts.add(line);
+            } else {
+                BulkLine<BulkProductRow> superseded = updates.put(line.row().getId(), line);
+                if (superseded != null) {
+                    errors.add(new BulkRowError(superseded.number(), line.row().getId(),
+                            "Superseded by line " + line.number()));
+                }
+            }
+        }
+
+        Mono<List<BulkRowError>> inserted = inserts.isEmpty()
+                ? Mono.just(List.of())
+                : bulkProductRepository.insertAll(inserts.stream().map(BulkLine::row).toList())
+                        .doOnNext(productCatalogCache::put)
+                        .then(Mono.just(List.<BulkRowError>of()))
+                        .onErrorResume(error -> Mono.just(failed(inserts, BulkProductRow::getId, error)));
+
+        // like a single update, a hot product has its logged reservations written first and its counter
+        // follows the updated row
+        Mono<List<BulkRowError>> updated = updates.isEmpty()
+                ? Mono.just(List.of())
+                : (hotSkuStock.anyHot(updates.keySet()) ? hotSkuStock.flush() : Mono.just(0L))
+                        .thenMany(bulkProductRepository.updateAll(
+                                updates.values().stream().map(BulkLine::row).toList()))
+                        .doOnNext(product -> {
+                            hotSkuStock.reset(product.getId(), product.getPrice(), product.getStock_quantity());
+                            productCatalogCache.put(product);
+                        })
+                        .map(Product::getId)
+                        .collect(Collectors.toSet())
+                        .map(found -> updates.values().stream()
+                                .filter(line -> !found.contains(line.row().getId()))
+                                .map(line -> new BulkRowError(line.number(), line.row().getId(),
+                                        "Product not found"))
+                                .toList())
+                        .onErrorResume(error -> Mono.just(failed(updates.values(), BulkProductRow::getId, error)));
+
+        return Mono.zip(inserted, updated)
+                .map(results -> {
+                    errors.addAll(results.getT1());
+                    errors.addAll(results.getT2());
+                    errors.sort(Comparator.comparingLong(BulkRowError::getLine));
+                    return new BatchResult(lines.size(), errors);
+                });
+    }
+
+    // the quantities of one product in a batch are summed and applied together, so its lines succeed or
+    // fail together
+    private Mono<BatchResult> adjustBatch(List<BulkLine<StockAdjustmentRow>> lines) {
+        List<BulkRowError> errors = new ArrayList<>();
+        TreeMap<Long, Integer> quantities = new TreeMap<>();
+        List<BulkLine<StockAdjustmentRow>> valid = new ArrayList<>();
+        for (BulkLine<StockAdjustmentRow> line : lines) {
+            String invalid = line.error() != null ? line.error()
+                    : line.row().getId() == null || line.row().getQuantity() == null
+                            ? "id and quantity are required"
+                            : null;
+            if (invalid != null) {
+                errors.add(new BulkRowError(line.number(), line.row() == null ? null : line.row().getId(),
+                        invalid));
+            } else {
+                quantities.merge(line.row().getId(), line.row().getQuantity(), Integer::sum);
+                valid.add(line);
+            }
+        }
+        if (quantities.isEmpty()) {
+            return Mono.just(new BatchResult(lines.size(), errors));
+        }
+
+        // like an import, a hot product has its logged reservations written first. its counter also holds back
+        // what is reserved in memory, so a decrement comes off the counter before the row and is refused
+        // when the counter cannot cover it; the row guard alone would let it through
+        Map<Long, Integer> taken = new HashMap<>();
+        Set<Long> refused = new HashSet<>();
+        Mono<Long> flushed = hotSkuStock.anyHot(quantities.keySet()) ? hotSkuStock.flush() : Mono.just(0L);
+        return flushed
+                .then(Mono.defer(() -> {
+                    quantities.forEach((id, quantity) -> {
+                        if (quantity < 0 && hotSkuStock.isHot(id)) {
+                            if (hotSkuStock.takeStock(id, -quantity)) {
+                                taken.put(id, -quantity);
+                            } else {
+                                refused.add(id);
+                            }
+                        }
+                    });
+                    quantities.keySet().removeAll(refused);
+                    return quantities.isEmpty()
+                            ? Mono.just(new StockAdjustment(Map.of(), Set.of()))
+                            : bulkProductRepository.addStockAll(quantities);
+                }))
+                .doOnError(error -> giveBack(taken))
+                .map(adjustment -> {
+                    // a hot product gets added stock on its counter too, the cache shows what the counter has
+                    adjustment.getAdjusted().forEach((id, stock) -> productCatalogCache.updateStock(id,
+                            taken.containsKey(id)
+                                    ? hotSkuStock.available(id)
+                                    : hotSkuStock.restock(id, new ReleasedStock(quantities.get(id), stock))));
+                    taken.keySet().removeAll(adjustment.getAdjusted().keySet());
+                    giveBack(taken);
+                    for (BulkLine<StockAdjustmentRow> line : valid) {
+                        Long id = line.row().getId();
+                        if (refused.contains(id)) {
+                            errors.add(new BulkRowError(line.number(), id, "Stock would go below zero"));
+                        } else if (!adjustment.getAdjusted().containsKey(id)) {
+                            errors.add(new BulkRowError(line.number(), id, adjustment.getExisting().contains(id)
+                                    ? "Stock would go below zero"
+                                    : "Product not found"));
+                        }
+                    }
+                    return new BatchResult(lines.size(), errors);
+                })
+                .onErrorResume(error -> {
+                    errors.addAll(failed(valid, StockAdjustmentRow::getId, error));
+                    return Mono.just(new BatchResult(lines.size(), errors));
+                });
+    }
+
+    // a decrement taken off a hot counter that the row refused or that failed goes back on the counter
+    private void giveBack(Map<Long, Integer> taken) {
+        taken.forEach((id, quantity) -> hotSkuStock.restock(id, new ReleasedStock(quantity, null)));
+        taken.clear();
+    }
+
+    private String validate(BulkProductRow row) {
+        if (row.getId() == null && (row.getPrice() == null || row.getStock_quantity() == null)) {
+            return "price and stock_quantity are required for a new product";
+        }
+        if (row.getPrice() != null && row.getPrice() < 0) {
+            return "price must not be negative";
+        }
+        if (row.getStock_quantity() != null && row.getStock_quantity() < 0) {
+            return "stock_quantity must not be negative";
+        }
+        return null;
+    }
+
+    private <T> List<BulkRowError> failed(Collection<BulkLine<T>> lines, Function<T, Long> idOf, Throwable error) {
+        log.warn("Bulk batch of {} line(s) failed: {}", lines.size(), error.getMessage());
+        return lines.stream()
+                .map(line -> new BulkRowError(line.number(), idOf.apply(line.row()),
+                        "Batch failed: " + error.getMessage()))
+                .toList();
+    }
+
+    private record BatchResult(int lines, List<BulkRowError> errors) {
+    }
+
+}
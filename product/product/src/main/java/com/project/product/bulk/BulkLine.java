@@ -0,0 +1,5 @@
+package com.project.product.bulk;
+
+// a line of the request body with its 1-based line number, either parsed into row or refused with error
+public record BulkLine<T>(long number, T row, String error) {
+}
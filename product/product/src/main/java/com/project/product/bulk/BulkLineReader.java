@@ -0,0 +1,115 @@
+package com.project.product.bulk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+// turns a streamed request body into rows as the bytes arrive, one line at a time, so a feed of any size
+// is never held in memory. NDJSON is one JSON object per line; CSV has a header line naming the fields, may
+// quote a field with "..." and double a quote inside it, but cannot break a field over two lines.
+// a line that cannot be read is handed on with its error instead of failing the whole body
+@Component
+public class BulkLineReader {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final StringDecoder decoder = StringDecoder.allMimeTypes();
+
+    private final ObjectMapper objectMapper;
+
+    public BulkLineReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T> Flux<BulkLine<T>> read(Flux<DataBuffer> body, MediaType contentType, Class<T> type) {
+        Flux<Tuple2<Long, String>> lines = decoder
+                .decode(body, ResolvableType.forClass(String.class), contentType, null)
+                .index((index, line) -> Tuples.of(index + 1, line))
+                .filter(line -> !line.getT2().isBlank());
+
+        if (contentType == null || !TEXT_CSV.isCompatibleWith(contentType)) {
+            return lines.map(line -> readJson(line.getT1(), line.getT2(), type));
+        }
+        return lines.switchOnFirst((first, all) -> {
+            if (!first.hasValue()) {
+                return Flux.empty();
+            }
+            List<String> header = split(first.get().getT2()).stream().map(String::trim).toList();
+            return all.skip(1).map(line -> readCsv(line.getT1(), line.getT2(), header, type));
+        });
+    }
+
+    private <T> BulkLine<T> readJson(long number, String line, Class<T> type) {
+        try {
+            return new BulkLine<>(number, objectMapper.readValue(line, type), null);
+        } catch (JsonProcessingException e) {
+            return new BulkLine<>(number, null, e.getOriginalMessage());
+        }
+    }
+
+    // the fields are matched to the header by name and converted like JSON strings, empty ones are left out
+    private <T> BulkLine<T> readCsv(long number, String line, List<String> header, Class<T> type) {
+        try {
+            List<String> fields = split(line);
+            if (fields.size() != header.size()) {
+                return new BulkLine<>(number, null,
+                        "Expected " + header.size() + " fields, got " + fields.size());
+            }
+            Map<String, String> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                if (!fields.get(i).isEmpty()) {
+                    values.put(header.get(i), fields.get(i));
+                }
+            }
+            return new BulkLine<>(number, objectMapper.convertValue(values, type), null);
+        } catch (IllegalArgumentException e) {
+            return new BulkLine<>(number, null, e.getMessage());
+        }
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.project.product.bulk;
+
+import java.util.List;
+import java.util.SortedMap;
+
+import com.project.product.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// the writes of the bulk endpoints, one multi-row statement per batch of lines
+public interface BulkProductRepository {
+
+    // create a product per row and return the created rows
+    Flux<Product> insertAll(List<BulkProductRow> rows);
+
+    // update the product of every row by id, empty fields keep their value. returns the updated rows,
+    // an id without product is simply not among them
+    Flux<Product> updateAll(List<BulkProductRow> rows);
+
+    // add every product id -> quantity to the stock unless it would go below zero
+    Mono<StockAdjustment> addStockAll(SortedMap<Long, Integer> quantities);
+
+}
@@ -0,0 +1,121 @@
+package com.project.product.bulk;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.project.product.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public class BulkProductRepositoryImpl implements BulkProductRepository {
+
+    // the field arrays bound by bindFields and the names of their columns in the unnest
+    private static final String FIELD_ARRAYS = "CAST(:prices AS REAL[]), CAST(:categories AS TEXT[]),"
+            + " CAST(:descriptions AS TEXT[]), CAST(:imageUrls AS TEXT[]), CAST(:stocks AS INTEGER[])";
+
+    private static final String FIELD_NAMES = "price, category, description, image_url, stock_quantity";
+
+    private final R2dbcEntityTemplate template;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final String table;
+
+    public BulkProductRepositoryImpl(R2dbcEntityTemplate template, TransactionalOperator transactionalOperator) {
+        this.template = template;
+        this.transactionalOperator = transactionalOperator;
+        this.databaseClient = template.getDatabaseClient();
+        this.table = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Product.class)
+                .getTableName()
+                .toSql(IdentifierProcessing.NONE);
+    }
+
+    @Override
+    public Flux<Product> insertAll(List<BulkProductRow> rows) {
+        return bindFields(databaseClient.sql("INSERT INTO " + table + " (" + FIELD_NAMES + ")"
+                + " SELECT " + FIELD_NAMES + " FROM unnest(" + FIELD_ARRAYS + ") AS v(" + FIELD_NAMES + ")"
+                + " RETURNING *"), rows)
+                .map((row, metadata) -> template.getConverter().read(Product.class, row, metadata))
+                .all();
+    }
+
+    // rows are expected sorted by id and without repeats, see lockInOrder
+    @Override
+    public Flux<Product> updateAll(List<BulkProductRow> rows) {
+        Long[] ids = rows.stream().map(BulkProductRow::getId).toArray(Long[]::new);
+        Flux<Product> update = bindFields(databaseClient.sql("UPDATE " + table + " AS p"
+                + " SET price = COALESCE(v.price, p.price), category = COALESCE(v.category, p.category),"
+                + " description = COALESCE(v.description, p.description),"
+                + " image_url = COALESCE(v.image_url, p.image_url),"
+                + " stock_quantity = COALESCE(v.stock_quantity, p.stock_quantity), published_at = :now"
+                + " FROM unnest(CAST(:ids AS BIGINT[]), " + FIELD_ARRAYS + ") AS v(id, " + FIELD_NAMES + ")"
+                + " WHERE p.id = v.id"
+                + " RETURNING p.*"), rows)
+                .bind("ids", ids)
+                .bind("now", LocalDateTime.now())
+                .map((row, metadata) -> template.getConverter().read(Product.class, row, metadata))
+                .all();
+        return transactionalOperator.transactional(lockInOrder(ids).thenMany(update));
+    }
+
+    // the new stock comes back only for the ids the guard let through
+    @Override
+    public Mono<StockAdjustment> addStockAll(SortedMap<Long, Integer> quantities) {
+        Long[] ids = quantities.keySet().toArray(new Long[0]);
+        Mono<StockAdjustment> adjust = lockInOrder(ids)
+                .flatMap(existing -> databaseClient.sql("UPDATE " + table + " AS p"
+                        + " SET stock_quantity = p.stock_quantity + v.quantity, published_at = :now"
+                        + " FROM unnest(CAST(:ids AS BIGINT[]), CAST(:quantities AS INTEGER[]))"
+                        + " AS v(id, quantity)"
+                        + " WHERE p.id = v.id AND p.stock_quantity + v.quantity >= 0"
+                        + " RETURNING p.id, p.stock_quantity")
+                        .bind("ids", ids)
+                        .bind("quantities", quantities.values().toArray(new Integer[0]))
+                        .bind("now", LocalDateTime.now())
+                        .map(row -> Map.entry(
+                                row.get("id", Long.class),
+                                row.get("stock_quantity", Integer.class)))
+                        .all()
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                        .map(adjusted -> new StockAdjustment(adjusted, existing)));
+        return transactionalOperator.transactional(adjust);
+    }
+
+    // batches running side by side may share products; taking the row locks in id order before the
+    // multi-row UPDATE keeps two of them from each waiting on a row the other one holds
+    private Mono<Set<Long>> lockInOrder(Long[] ids) {
+        return databaseClient.sql("SELECT id FROM " + table
+                + " WHERE id = ANY(CAST(:ids AS BIGINT[])) ORDER BY id FOR UPDATE")
+                .bind("ids", ids)
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .collect(Collectors.toSet());
+    }
+
+    // an array may be bound with null elements but not as null, so the fields go in one array per column
+    private DatabaseClient.GenericExecuteSpec bindFields(DatabaseClient.GenericExecuteSpec spec,
+            List<BulkProductRow> rows) {
+        return spec
+                .bind("prices", rows.stream().map(BulkProductRow::getPrice).toArray(Float[]::new))
+                .bind("categories", rows.stream().map(BulkProductRow::getCategory).toArray(String[]::new))
+                .bind("descriptions", rows.stream().map(BulkProductRow::getDescription).toArray(String[]::new))
+                .bind("imageUrls", rows.stream().map(BulkProductRow::getImage_url).toArray(String[]::new))
+                .bind("stocks", rows.stream().map(BulkProductRow::getStock_quantity).toArray(Integer[]::new));
+    }
+
+}
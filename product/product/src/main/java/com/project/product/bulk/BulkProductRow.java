@@ -0,0 +1,26 @@
+package com.project.product.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one product of an import feed. without id it is created and needs price and stock_quantity; with id the
+// existing product is updated and fields left empty keep their value
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkProductRow {
+
+    private Long id;
+
+    private Float price;
+
+    private String category;
+
+    private String description;
+
+    private String image_url;
+
+    private Integer stock_quantity;
+
+}
@@ -0,0 +1,53 @@
+package com.project.product.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// outcome of a bulk request: how many lines were applied or refused, and the refused lines themselves up to
+// product.bulk.max-reported-errors of them
+public class BulkReport {
+
+    private final int maxErrors;
+
+    private long applied;
+
+    private long failed;
+
+    private final List<BulkRowError> errors = new ArrayList<>();
+
+    private boolean errorsTruncated;
+
+    public BulkReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public BulkReport add(int lines, List<BulkRowError> batchErrors) {
+        applied += lines - batchErrors.size();
+        failed += batchErrors.size();
+        for (BulkRowError error : batchErrors) {
+            if (errors.size() < maxErrors) {
+                errors.add(error);
+            } else {
+                errorsTruncated = true;
+            }
+        }
+        return this;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<BulkRowError> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.project.product.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// a line of a bulk request that was not applied, and why
+@Getter
+@AllArgsConstructor
+public class BulkRowError {
+
+    private final long line;
+
+    private final Long id;
+
+    private final String message;
+
+}
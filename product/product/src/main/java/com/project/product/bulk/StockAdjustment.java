@@ -0,0 +1,19 @@
+package com.project.product.bulk;
+
+import java.util.Map;
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// outcome of a batch of stock adjustments: the new stock of every adjusted product, and which of the
+// requested ids exist at all. an existing id that was not adjusted would have gone below zero
+@Getter
+@AllArgsConstructor
+public class StockAdjustment {
+
+    private final Map<Long, Integer> adjusted;
+
+    private final Set<Long> existing;
+
+}
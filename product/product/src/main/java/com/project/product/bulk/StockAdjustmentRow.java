@@ -0,0 +1,17 @@
+package com.project.product.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of a stock feed: quantity is added to the stock of the product, negative to take stock off
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentRow {
+
+    private Long id;
+
+    private Integer quantity;
+
+}
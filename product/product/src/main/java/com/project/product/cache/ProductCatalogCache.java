@@ -0,0 +1,89 @@
+package com.project.product.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.cache.VersionedCache;
+import com.project.product.Product;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+// bounded, TTL based cache of products for the read paths (getById, price look-ups).
+// the stock counter in the database stays authoritative, the cached stock_quantity is only for display.
+// Product is mutable, so an entry is a private copy that is never changed: callers get their own copy and a
+// stock refresh replaces the entry
+@Component
+public class ProductCatalogCache implements MeterBinder {
+
+    private final VersionedCache<Long, Product> cache;
+
+    public ProductCatalogCache(@Value("${product.cache.max-size:10000}") int maxSize,
+            @Value("${product.cache.ttl:PT5M}") Duration ttl) {
+        this.cache = new VersionedCache<>("product-catalog", maxSize, ttl, ProductCatalogCache::copy);
+    }
+
+    // serve from the cache, otherwise load and remember the product. a write that landed while the load was
+    // running is newer than what the load read, so the loaded product only fills an empty or expired slot
+    public Mono<Product> get(Long id, Function<Long, Mono<Product>> loader) {
+        return cache.get(id, loader, product -> VersionedCache.UNVERSIONED);
+    }
+
+    public Product getIfPresent(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    // write-through after the product was written, replaces whatever is cached
+    public void put(Product product) {
+        if (product != null) {
+            cache.put(product.getId(), product);
+        }
+    }
+
+    // keeps the displayed stock close to the database after a reservation, without another read
+    public void updateStock(Long id, Integer stockQuantity) {
+        cache.update(id, product -> product.setStock_quantity(stockQuantity));
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    // picked up by Spring Boot like any MeterBinder bean
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache.bindTo(registry);
+    }
+
+    private static Product copy(Product product) {
+        Product copy = Product.builder().build();
+        BeanUtils.copyProperties(product, copy);
+        return copy;
+    }
+
+}
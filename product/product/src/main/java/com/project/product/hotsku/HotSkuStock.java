@@ -0,0 +1,315 @@
+package com.project.product.hotsku;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.DTO.money.Money;
+import com.example.metrics.MonoTimer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.product.ReservedStock;
+import com.project.product.reservation.ReleasedStock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+// opt-in flash-sale mode for the products listed in product.hot-sku.ids. their available stock lives in
+// striped in-memory counters and reservations are decided there with CAS, so throughput grows with cores
+// instead of queueing on the row lock of one product. every reservation is appended to the hot stock log
+// before it is answered, and the log is flushed every flush-interval as one statement writing the holds
+// and taking the summed quantities off the product rows. flushes run one at a time, the periodic ones and
+// those asked for by a confirm, release or edit alike.
+// the counters are the truth for these products, so only one product instance may serve them
+@Slf4j
+@Component
+public class HotSkuStock {
+
+    private final HotStockRepository hotStockRepository;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Long> hotIds;
+
+    private final int stripes;
+
+    private final Duration flushInterval;
+
+    private final HotStockLog hotStockLog;
+
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+
+    private final Map<Long, Money> prices = new ConcurrentHashMap<>();
+
+    // per product, what was taken from the counter and is not in the row yet. the counter plus this is
+    // the stock of the row once every flush is done
+    private final Map<Long, AtomicLong> unflushedQuantities = new ConcurrentHashMap<>();
+
+    // orders with a hold still in the log only, a confirm or release of them flushes first
+    private final Set<Long> unflushedOrders = ConcurrentHashMap.newKeySet();
+
+    // rotated segments whose write failed, tried again before the next one
+    private final Queue<HotStockLog.Segment> failedSegments = new ConcurrentLinkedQueue<>();
+
+    // flushes asked for outside the interval, each completed once its own flush is done
+    private final Sinks.Many<Sinks.One<Long>> flushRequests = Sinks.many().unicast().onBackpressureBuffer();
+
+    private Disposable flusher;
+
+    public HotSkuStock(HotStockRepository hotStockRepository, MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            @Value("${product.hot-sku.ids:}") Set<Long> hotIds,
+            @Value("${product.hot-sku.stripes:0}") int stripes,
+            @Value("${product.hot-sku.flush-interval:PT0.1S}") Duration flushInterval,
+            @Value("${product.hot-sku.log-path:hot-stock.log}") String logPath,
+            @Value("${product.hot-sku.log-fsync:false}") boolean logFsync,
+            @Value("${product.hot-sku.log-group-window:PT0S}") Duration logGroupWindow,
+            @Value("${product.hot-sku.log-max-group:256}") int logMaxGroup) {
+        this.hotStockRepository = hotStockRepository;
+        this.meterRegistry = meterRegistry;
+        this.hotIds = hotIds;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.flushInterval = flushInterval;
+        this.hotStockLog = new HotStockLog(objectMapper, Path.of(logPath), logFsync, meterRegistry,
+                logGroupWindow, logMaxGroup);
+    }
+
+    // replays what the last run reserved but did not flush, then loads the counters from the rows,
+    // before any reservation is accepted
+    @PostConstruct
+    public void start() {
+        if (hotIds.isEmpty()) {
+            return;
+        }
+        HotStockLog.Segment recovered = hotStockLog.recover();
+        if (!recovered.entries().isEmpty()) {
+            hotStockRepository.applyHolds(recovered.entries()).block();
+            log.info("Replayed {} unflushed hot stock reservation(s)", recovered.entries().size());
+        }
+        hotStockLog.delete(recovered);
+
+        hotStockRepository.load(hotIds).block().forEach((id, stock) -> {
+            counters.put(id, new StripedCounter(stripes, stock.getRemainingStock()));
+            unflushedQuantities.put(id, new AtomicLong());
+            prices.put(id, stock.getPrice());
+            Gauge.builder("product.hot_sku.available", counters.get(id), StripedCounter::sum)
+                    .tags(Tags.of("product", String.valueOf(id)))
+                    .register(meterRegistry);
+        });
+        log.info("Hot stock mode on for product(s) {} with {} stripe(s)", counters.keySet(), stripes);
+
+        // a tick nobody waits for and a requested flush queue up behind whichever flush is running, so a
+        // segment is never still being written while a later flush reports the log written
+        flusher = Flux.merge(
+                Flux.interval(flushInterval).onBackpressureDrop().map(tick -> Sinks.<Long>one()),
+                flushRequests.asFlux())
+                .concatMap(done -> writeSegments()
+                        .doOnNext(done::tryEmitValue)
+                        .onErrorResume(error -> {
+                            log.error("Hot stock flush failed: {}", error.getMessage());
+                            done.tryEmitError(error);
+                            return Mono.just(0L);
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.dispose();
+        try {
+            writeSegments().block(Duration.ofSeconds(10));
+        } catch (RuntimeException e) {
+            // the log still has the entries, they are replayed on the next start
+            log.warn("Last hot stock flush did not finish: {}", e.getMessage());
+        }
+        hotStockLog.closeWriter();
+    }
+
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    public boolean anyHot(Collection<Long> productIds) {
+        if (counters.isEmpty()) {
+            return false;
+        }
+        for (Long id : productIds) {
+            if (isHot(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Integer available(Long productId) {
+        return (int) counters.get(productId).sum();
+    }
+
+    // take and log one order line, empty when the stock is short
+    public Mono<ReservedStock> reserve(Long orderId, Long productId, Integer quantity, LocalDateTime expiresAt) {
+        Map<Long, Integer> line = Map.of(productId, quantity);
+        return Mono.defer(() -> {
+            Map<Long, ReservedStock> taken = take(line);
+            if (taken == null) {
+                return Mono.empty();
+            }
+            return hold(orderId, line, expiresAt).thenReturn(taken.get(productId));
+        });
+    }
+
+    // takes every product id -> quantity in memory or none of them, null when any is short.
+    // nothing is logged yet, the caller either holds or gives the quantities back
+    public Map<Long, ReservedStock> take(Map<Long, Integer> quantities) {
+        Map<Long, ReservedStock> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Long id = line.getKey();
+            StripedCounter counter = counters.get(id);
+            // counted as unflushed before it leaves the counter, so a reset always sees it in one of the two
+            unflushedQuantities.get(id).addAndGet(line.getValue());
+            if (!counter.tryTake(line.getValue())) {
+                unflushedQuantities.get(id).addAndGet(-line.getValue());
+                taken.keySet().forEach(takenId -> giveBack(takenId, quantities.get(takenId)));
+                return null;
+            }
+            taken.put(id, new ReservedStock(prices.get(id), (int) counter.sum()));
+        }
+        return taken;
+    }
+
+    public void giveBack(Map<Long, Integer> quantities) {
+        quantities.forEach(this::giveBack);
+    }
+
+    private void giveBack(Long productId, Integer quantity) {
+        counters.get(productId).add(quantity);
+        unflushedQuantities.get(productId).addAndGet(-quantity);
+    }
+
+    // logs the taken quantities as holds of the order, they are given back when the log cannot be written.
+    // concurrent holds share one log write
+    public Mono<Void> hold(Long orderId, Map<Long, Integer> quantities, LocalDateTime expiresAt) {
+        List<HotStockEntry> entries = new ArrayList<>();
+        quantities.forEach((id, quantity) -> entries.add(new HotStockEntry(orderId, id, quantity, expiresAt)));
+        return Mono.defer(() -> {
+                    unflushedOrders.add(orderId);
+                    return hotStockLog.append(entries);
+                })
+                .doOnError(error -> giveBack(quantities));
+    }
+
+    // stock leaving a hot product outside a reservation, e.g. a bulk decrement, comes off its counter
+    // before the row. false when the counter cannot cover it, it is never taken in part
+    public boolean takeStock(Long productId, int quantity) {
+        return counters.get(productId).tryTake(quantity);
+    }
+
+    // stock returned to a product by the database (release, restock) is returned to its counter too;
+    // answers the stock to show for the product
+    public Integer restock(Long productId, ReleasedStock released) {
+        StripedCounter counter = counters.get(productId);
+        if (counter == null) {
+            return released.getRemainingStock();
+        }
+        counter.add(released.getQuantity());
+        return (int) counter.sum();
+    }
+
+    // a product edited as a whole: its counter and price follow the new row. reservations taken while the
+    // edit runs are still to be flushed against the new row, so the counter is moved by the difference to
+    // the row stock less what is unflushed, not set to the row stock
+    public void reset(Long productId, Float price, Integer stockQuantity) {
+        StripedCounter counter = counters.get(productId);
+        if (counter == null) {
+            return;
+        }
+        counter.add(stockQuantity - unflushedQuantities.get(productId).get() - counter.sum());
+        prices.put(productId, Money.ofMajor(price));
+    }
+
+    // a confirm or release has to find the hold in the database, so an order still in the log is flushed
+    // first. the flush queues behind one already writing the segment of the order, and the order has to
+    // have left the log when it is done, otherwise the confirm or release fails and is retried
+    public Mono<Long> flushIfUnflushed(Long orderId) {
+        if (!unflushedOrders.contains(orderId)) {
+            return Mono.just(0L);
+        }
+        return flush()
+                .flatMap(rows -> unflushedOrders.contains(orderId)
+                        ? Mono.error(new IllegalStateException("Hold of order " + orderId + " is not flushed yet"))
+                        : Mono.just(rows));
+    }
+
+    // runs a flush after any flush in progress, returns the product rows updated. fails when any segment
+    // could not be written, it stays on disk and is retried on the next flush
+    public Mono<Long> flush() {
+        return Mono.defer(() -> {
+            Sinks.One<Long> done = Sinks.one();
+            Sinks.EmitResult result;
+            synchronized (flushRequests) {
+                result = flushRequests.tryEmitNext(done);
+            }
+            return result.isSuccess()
+                    ? done.asMono()
+                    : Mono.error(new IllegalStateException("Hot stock flusher is not running: " + result));
+        });
+    }
+
+    // writes the failed segments again and then the current one, only ever called by the flusher
+    private Mono<Long> writeSegments() {
+        return Mono.fromCallable(() -> {
+                    List<HotStockLog.Segment> segments = new ArrayList<>();
+                    HotStockLog.Segment failed;
+                    while ((failed = failedSegments.poll()) != null) {
+                        segments.add(failed);
+                    }
+                    HotStockLog.Segment current = hotStockLog.rotate();
+                    if (current != null) {
+                        segments.add(current);
+                    }
+                    return segments;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                // a failed segment does not keep the ones after it from being written
+                .concatMapDelayError(this::apply)
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> apply(HotStockLog.Segment segment) {
+        return MonoTimer.time(meterRegistry, "product.hot_sku.flush", Tags.empty(),
+                hotStockRepository.applyHolds(segment.entries()))
+                .doOnNext(rows -> {
+                    hotStockLog.delete(segment);
+                    segment.entries().forEach(entry -> {
+                        unflushedQuantities.get(entry.getProductId()).addAndGet(-entry.getQuantity());
+                        unflushedOrders.remove(entry.getOrderId());
+                    });
+                })
+                .doOnError(error -> failedSegments.add(segment));
+    }
+
+}
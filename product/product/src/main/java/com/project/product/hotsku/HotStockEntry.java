@@ -0,0 +1,23 @@
+package com.project.product.hotsku;
+
+import java.time.LocalDateTime;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one order line reserved in memory, the unit written to the hot stock log and flushed as a hold
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockEntry {
+
+    private Long orderId;
+
+    private Long productId;
+
+    private Integer quantity;
+
+    private LocalDateTime expiresAt;
+
+}
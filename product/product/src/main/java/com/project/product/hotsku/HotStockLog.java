@@ -0,0 +1,183 @@
+package com.project.product.hotsku;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.batch.MicroBatcher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// append-only log of the reservations decided in memory and not yet flushed to the database, one JSON
+// line per order line. a flush rotates the current segment out and deletes it once the database has the
+// entries; whatever segments are left after a crash are replayed on the next start.
+// appends are group-committed: the appends arriving while a group is written leave together as the next
+// group, which is written with one flush (and fsync) and then answers all of them
+@Slf4j
+public class HotStockLog {
+
+    private static final String SEGMENT_SUFFIX = ".flushing";
+
+    private final ObjectMapper objectMapper;
+
+    private final Path path;
+
+    // force every group to the disk, otherwise it only survives a crash of the process
+    private final boolean fsync;
+
+    private final MicroBatcher<Path, List<HotStockEntry>, Boolean> groups;
+
+    private FileOutputStream out;
+
+    private BufferedWriter writer;
+
+    private List<HotStockEntry> unflushed = new ArrayList<>();
+
+    private long segments;
+
+    public HotStockLog(ObjectMapper objectMapper, Path path, boolean fsync, MeterRegistry meterRegistry,
+            Duration groupWindow, int maxGroup) {
+        this.objectMapper = objectMapper;
+        this.path = path;
+        this.fsync = fsync;
+        this.groups = new MicroBatcher<>("product.hot_sku.log", groupWindow, maxGroup, meterRegistry,
+                this::appendGroup);
+    }
+
+    // completes once the entries are on disk, together with the other appends of their group
+    public Mono<Void> append(List<HotStockEntry> entries) {
+        return groups.submit(path, entries).then();
+    }
+
+    private Mono<List<Boolean>> appendGroup(Path key, List<List<HotStockEntry>> group) {
+        return Mono.fromCallable(() -> {
+                    write(group);
+                    return Collections.nCopies(group.size(), Boolean.TRUE);
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized void write(List<List<HotStockEntry>> group) {
+        try {
+            if (writer == null) {
+                out = new FileOutputStream(path.toFile(), true);
+                writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            }
+            for (List<HotStockEntry> entries : group) {
+                for (HotStockEntry entry : entries) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            }
+            writer.flush();
+            if (fsync) {
+                out.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to hot stock log " + path, e);
+        }
+        group.forEach(unflushed::addAll);
+    }
+
+    // closes the current segment and hands its entries to the flush, new appends start a fresh file.
+    // null when nothing was appended since the last rotation
+    public synchronized Segment rotate() {
+        if (unflushed.isEmpty()) {
+            return null;
+        }
+        closeWriter();
+        Path segment = path.resolveSibling(path.getFileName() + "." + (++segments) + SEGMENT_SUFFIX);
+        try {
+            Files.move(path, segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot rotate hot stock log " + path, e);
+        }
+        Segment rotated = new Segment(List.of(segment), unflushed);
+        unflushed = new ArrayList<>();
+        return rotated;
+    }
+
+    // drops the files of a segment once its entries are in the database
+    public void delete(Segment segment) {
+        for (Path file : segment.files()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // replaying it again later is harmless, the flush statement skips holds it already wrote
+                log.warn("Cannot delete flushed hot stock log {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    // every entry left in rotated segments and in the current file, for the replay on start
+    public synchronized Segment recover() {
+        closeWriter();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> rotated = Files.newDirectoryStream(directory(),
+                path.getFileName() + ".*" + SEGMENT_SUFFIX)) {
+            rotated.forEach(files::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list hot stock log segments of " + path, e);
+        }
+        if (Files.exists(path)) {
+            files.add(path);
+        }
+
+        List<HotStockEntry> entries = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        entries.add(objectMapper.readValue(line, HotStockEntry.class));
+                    } catch (JsonProcessingException e) {
+                        // a torn last line after a crash, that reservation was never answered
+                        log.warn("Skipping unreadable hot stock log line: {}", e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read hot stock log " + file, e);
+            }
+        }
+        return new Segment(files, entries);
+    }
+
+    public synchronized void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Error closing hot stock log: {}", e.getMessage());
+        }
+        writer = null;
+        out = null;
+    }
+
+    private Path directory() {
+        Path parent = path.toAbsolutePath().getParent();
+        return parent == null ? Path.of(".") : parent;
+    }
+
+    public record Segment(List<Path> files, List<HotStockEntry> entries) {
+    }
+
+}
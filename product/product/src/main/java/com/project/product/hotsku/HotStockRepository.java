@@ -0,0 +1,21 @@
+package com.project.product.hotsku;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.project.product.ReservedStock;
+
+import reactor.core.publisher.Mono;
+
+// database side of the hot products: the starting stock and the batched write of what memory reserved
+public interface HotStockRepository {
+
+    // product id -> price and stock for the ids that exist
+    Mono<Map<Long, ReservedStock>> load(Collection<Long> productIds);
+
+    // write the entries as HELD reservations and take their quantities off the product rows, in one
+    // statement. entries whose hold already exists are skipped with their quantity, so a replay is harmless
+    Mono<Long> applyHolds(List<HotStockEntry> entries);
+
+}
@@ -0,0 +1,88 @@
+package com.project.product.hotsku;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.example.DTO.money.Money;
+import com.project.product.Product;
+import com.project.product.ReservedStock;
+import com.project.product.reservation.ReservationStatus;
+
+import reactor.core.publisher.Mono;
+
+@Repository
+public class HotStockRepositoryImpl implements HotStockRepository {
+
+    private final DatabaseClient databaseClient;
+
+    private final String table;
+
+    public HotStockRepositoryImpl(R2dbcEntityTemplate template) {
+        this.databaseClient = template.getDatabaseClient();
+        this.table = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Product.class)
+                .getTableName()
+                .toSql(IdentifierProcessing.NONE);
+    }
+
+    @Override
+    public Mono<Map<Long, ReservedStock>> load(Collection<Long> productIds) {
+        return databaseClient.sql("SELECT id, price, stock_quantity FROM " + table
+                + " WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+                .bind("ids", productIds.toArray(new Long[0]))
+                .map(row -> Map.entry(
+                        row.get("id", Long.class),
+                        new ReservedStock(
+                                Money.ofMajor(row.get("price", Float.class)),
+                                row.get("stock_quantity", Integer.class))))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    // the quantities taken off the rows come from the holds actually inserted, never from the input,
+    // which is what makes writing the same entries twice a no-op
+    @Override
+    public Mono<Long> applyHolds(List<HotStockEntry> entries) {
+        int size = entries.size();
+        Long[] orderIds = new Long[size];
+        Long[] productIds = new Long[size];
+        Integer[] quantities = new Integer[size];
+        LocalDateTime[] expiresAt = new LocalDateTime[size];
+        for (int i = 0; i < size; i++) {
+            HotStockEntry entry = entries.get(i);
+            orderIds[i] = entry.getOrderId();
+            productIds[i] = entry.getProductId();
+            quantities[i] = entry.getQuantity();
+            expiresAt[i] = entry.getExpiresAt();
+        }
+
+        return databaseClient.sql("WITH held AS ("
+                + " INSERT INTO stock_reservation (order_id, product_id, quantity, status, expires_at, created_at)"
+                + " SELECT v.order_id, v.product_id, v.quantity, :held, v.expires_at, :now"
+                + " FROM unnest(CAST(:orderIds AS BIGINT[]), CAST(:productIds AS BIGINT[]),"
+                + " CAST(:quantities AS INTEGER[]), CAST(:expiresAt AS TIMESTAMP[]))"
+                + " AS v(order_id, product_id, quantity, expires_at)"
+                + " ON CONFLICT (order_id, product_id) DO NOTHING"
+                + " RETURNING product_id, quantity)"
+                + " UPDATE " + table + " AS p"
+                + " SET stock_quantity = p.stock_quantity - t.quantity, published_at = :now"
+                + " FROM (SELECT product_id, SUM(quantity) AS quantity FROM held GROUP BY product_id) AS t"
+                + " WHERE p.id = t.product_id")
+                .bind("held", ReservationStatus.HELD.name())
+                .bind("now", LocalDateTime.now())
+                .bind("orderIds", orderIds)
+                .bind("productIds", productIds)
+                .bind("quantities", quantities)
+                .bind("expiresAt", expiresAt)
+                .fetch()
+                .rowsUpdated();
+    }
+
+}
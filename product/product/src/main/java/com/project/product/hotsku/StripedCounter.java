@@ -0,0 +1,119 @@
+package com.project.product.hotsku;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// available stock of one product split over several cells, so concurrent reservations mostly CAS
+// different cache lines instead of all spinning on one. the sum of the cells is the stock; a take never
+// drives a cell below zero, so the sum can never go below zero either
+public class StripedCounter {
+
+    // 16 longs = 128 bytes between two cells, two cells never share a cache line or its prefetched neighbour
+    private static final int PAD = 16;
+
+    private final AtomicLongArray cells;
+
+    private final int stripes;
+
+    public StripedCounter(int stripes, long initial) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicLongArray(this.stripes * PAD);
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PAD, initial / this.stripes + (i < initial % this.stripes ? 1 : 0));
+        }
+    }
+
+    // take quantity in full or not at all. the home cell is tried first, then the others; when no single
+    // cell can cover it the quantity is gathered from several cells and given back if the total is short.
+    // while such a gather is in flight a competing take can be refused although the stock would cover it
+    public boolean tryTake(int quantity) {
+        if (quantity <= 0) {
+            return true;
+        }
+        int home = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            if (takeAll((home + i) % stripes, quantity)) {
+                return true;
+            }
+        }
+        return gather(home, quantity);
+    }
+
+    // stock coming back (release, restock) goes to any cell, the next takes pick it up
+    public void add(long quantity) {
+        if (quantity == 0) {
+            return;
+        }
+        if (quantity > 0) {
+            int cell = ThreadLocalRandom.current().nextInt(stripes);
+            cells.getAndAdd(cell * PAD, quantity);
+            return;
+        }
+        // a negative correction is taken like stock, as far as there is any
+        long missing = -quantity;
+        for (int i = 0; i < stripes && missing > 0; i++) {
+            missing -= takeUpTo(i, missing);
+        }
+    }
+
+    // a moment-in-time sum, exact only while nothing else changes the counter
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    private boolean takeAll(int cell, long quantity) {
+        int index = cell * PAD;
+        while (true) {
+            long current = cells.get(index);
+            if (current < quantity) {
+                return false;
+            }
+            if (cells.compareAndSet(index, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    // takes at most quantity from one cell and returns what it took
+    private long takeUpTo(int cell, long quantity) {
+        int index = cell * PAD;
+        while (true) {
+            long current = cells.get(index);
+            if (current <= 0) {
+                return 0;
+            }
+            long taken = Math.min(current, quantity);
+            if (cells.compareAndSet(index, current, current - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private boolean gather(int home, int quantity) {
+        long[] taken = new long[stripes];
+        long missing = quantity;
+        for (int i = 0; i < stripes && missing > 0; i++) {
+            int cell = (home + i) % stripes;
+            taken[cell] = takeUpTo(cell, missing);
+            missing -= taken[cell];
+        }
+        if (missing == 0) {
+            return true;
+        }
+        for (int cell = 0; cell < stripes; cell++) {
+            if (taken[cell] > 0) {
+                cells.getAndAdd(cell * PAD, taken[cell]);
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.project.product.idempotency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.idempotency.IdempotencyGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.product.exception.ProductException;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyGuard idempotencyGuard(DatabaseClient databaseClient,
+            TransactionalOperator transactionalOperator, ObjectMapper objectMapper,
+            @Value("${idempotency.cache-size:10000}") int cacheSize) {
+        return new IdempotencyGuard(databaseClient, transactionalOperator, objectMapper, cacheSize,
+                ProductException::new);
+    }
+
+}
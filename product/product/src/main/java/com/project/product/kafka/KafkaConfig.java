@@ -4,6 +4,8 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
@@ -14,27 +16,49 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.kafka.ProducerProfile;
+import com.example.kafka.WireFormatDeserializer;
+import com.example.kafka.WireFormatSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
 
+// the kafka client metrics (records-lag-max, send rate, record errors) are bound to these factories by the
+// shared MetricsAutoConfiguration, like to the ones Spring Boot builds in the other services
 @Configuration
 @EnableKafka
 public class KafkaConfig {
 
+    // json or cbor for the messages this service sends, it reads both either way
+    @Value("${kafka.wire-format:json}")
+    private String wireFormat;
+
+    // batching, compression and idempotence settings, overridable with kafka.producer.*
+    @Bean
+    @ConfigurationProperties(prefix = "kafka.producer")
+    public ProducerProfile producerProfile() {
+        return new ProducerProfile();
+    }
+
     @Bean
     public ProducerFactory<String, ?> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, WireFormatSerializer.class);
+        configProps.put(WireFormatSerializer.WIRE_FORMAT_CONFIG, wireFormat);
+        configProps.putAll(producerProfile().toConfig());
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+        return factory;
     }
 
     @Bean
     public KafkaTemplate<String, ?> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, ?> template = new KafkaTemplate<>(producerFactory());
+        // times every send and puts the trace context in the record headers
+        template.setObservationEnabled(true);
+        return template;
     }
 
     @Bean
@@ -43,15 +67,18 @@ public class KafkaConfig {
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "group_id");
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, WireFormatDeserializer.class);
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        return factory;
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, ?> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, ?> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        // listener processing time and the trace context taken from the record headers
+        factory.getContainerProperties().setObservationEnabled(true);
         return factory;
     }
 
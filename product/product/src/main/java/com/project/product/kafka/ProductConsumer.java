@@ -1,40 +1,42 @@
 package com.project.product.kafka;
 
-// @Service
-// @Slf4j
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
+import com.project.product.ProductService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// reserve-stock commands of the Kafka saga mode, keyed by product id so each product is reserved by one
+// consumer in command order. a redelivered command gets the stored answer of the first one, and the
+// answer goes back on reserve-stock-reply keyed by order id before the offset is committed.
+// confirm-stock keeps the hold of a paid order and is safe to redeliver, only HELD rows are confirmed and
+// released ones taken again
+@Service
+@Slf4j
 public class ProductConsumer {
 
-    // @Autowired
-    // private ProductService productService;
-
-    // @KafkaListener(topics = "check-product", groupId = "didiKerenGroup")
-    // public void consumeOrderRequest(OrdersDTOSend message) {
-    //     try {
-    //         log.info("Message is received and will be checked");
-    //         // productService.checkAndDeductStock(message).subscribe();
-    //     } catch (Exception e) {
-    //         // e.getMessage();
-    //     }
-    // }
-}
+    @Autowired
+    private ProductService productService;
 
-// try {
-// productService.deductStockQuantity(message.getOrderItems().get(1).getProduct_id());
-// // Deserialize the message to OrdersDTO
-// // OrdersDTO ordersDTO = objectMapper.readValue(message, OrdersDTO.class);
-
-// // // Check product details and stock quantity
-// // productService.checkAndDeductStock(ordersDTO)
-// // .doOnSuccess(product -> {
-// // // Send the response back to order service
-// // try {
-// // String responseMessage = objectMapper.writeValueAsString(product);
-// // productProducer.sendProductResponse(responseMessage);
-// // } catch (JsonProcessingException e) {
-// // e.printStackTrace();
-// // }
-// // })
-// // .subscribe();
-// } catch (Exception e) {
-// e.printStackTrace();
-// }
+    @Autowired
+    private ProductProducer productProducer;
+
+    @KafkaListener(topics = SagaTopics.RESERVE_STOCK, groupId = "product-commands")
+    public void consumeReserveStock(OrdersDTOSend message) {
+        log.debug("Reserve stock command received for order {}", message.getId());
+        OrdersDTOSend reply = productService.checkAndDeductStock(message).block();
+        productProducer.replyStockReserved(reply).join();
+    }
+
+    @KafkaListener(topics = SagaTopics.CONFIRM_STOCK, groupId = "product-commands")
+    public void consumeConfirmStock(OrdersDTOSend message) {
+        log.debug("Confirm stock command received for order {}", message.getId());
+        OrdersDTOSend reply = productService.confirmStock(message).block();
+        productProducer.replyStockConfirmed(reply).join();
+    }
+
+}
@@ -1,13 +1,18 @@
 package com.project.product.kafka;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.DTO.order.OrdersDTOSend;
+import com.example.kafka.SagaTopics;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 
 @Service
 @Slf4j
@@ -17,12 +22,40 @@ public class ProductProducer {
     private KafkaTemplate<String, Object> kafkaTemplate;
 
     public void updateOrderMessageToOrches(OrdersDTOSend message) {
-        kafkaTemplate.send("update-order-orchestrator", message);
+        send("update-order-orchestrator", message);
     }
 
     public void updateOrderMessageToOrchesFail(OrdersDTOSend message) {
-        kafkaTemplate.send("update-order-orchestrator-fail", message);
+        send("update-order-orchestrator-fail", message);
         log.info("Product check --> order failed");
     }
 
+    // answer to a reserve-stock command of the Kafka saga mode
+    public CompletableFuture<SendResult<String, Object>> replyStockReserved(OrdersDTOSend message) {
+        return send(SagaTopics.RESERVE_STOCK_REPLY, message);
+    }
+
+    // answer to a confirm-stock command of the Kafka saga mode
+    public CompletableFuture<SendResult<String, Object>> replyStockConfirmed(OrdersDTOSend message) {
+        return send(SagaTopics.CONFIRM_STOCK_REPLY, message);
+    }
+
+    // keyed by order id so every message of one order lands on the same partition in order,
+    // and the send result is checked instead of dropping the returned future
+    private CompletableFuture<SendResult<String, Object>> send(String topic, OrdersDTOSend message) {
+        long start = System.nanoTime();
+        return kafkaTemplate.send(topic, String.valueOf(message.getId()), message)
+                .whenComplete((result, error) -> {
+                    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (error != null) {
+                        log.error("Failed to send order {} to {} after {} ms: {}",
+                                message.getId(), topic, elapsedMs, error.getMessage());
+                    } else {
+                        log.debug("Sent order {} to {}-{}@{} in {} ms", message.getId(), topic,
+                                result.getRecordMetadata().partition(), result.getRecordMetadata().offset(),
+                                elapsedMs);
+                    }
+                });
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.project.product.kafka;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.example.DTO.order.OrdersDTOSend;
+import com.project.product.ProductService;
+
+import lombok.extern.slf4j.Slf4j;
+
+// releases the stock held for an order from the failed status the orchestrator publishes, so a failed
+// order gets its stock back without a compensation call to this service. a completed order needs no
+// event here: the orchestrator confirms its hold before it publishes COMPLETED
+@Service
+@Slf4j
+public class ReservationConsumer {
+
+    public static final String ORDER_UPDATE_FAIL = "order-update-fail";
+
+    @Autowired
+    private ProductService productService;
+
+    @KafkaListener(topics = ORDER_UPDATE_FAIL, groupId = "product-reservation")
+    public void consumeOrderFailed(OrdersDTOSend message) {
+        productService.releaseReservation(message.getId()).block();
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.project.product.reservation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.batch.MicroBatcher;
+import com.project.product.ProductStockRepository;
+import com.project.product.ReservedStock;
+import com.project.product.hotsku.HotStockEntry;
+import com.project.product.hotsku.HotStockRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+// opt-in coalescing of single-line reservations. the requests arriving for one product within window (or
+// max-batch of them) are decided together: one transaction locks the product row once, grants the lines
+// in arrival order as long as the stock covers them, and writes all granted holds and the summed deduction
+// with the statement the hot products flush with. a busy product then takes one row lock per batch instead
+// of one per order.
+// the batch commits on its own connection, and callers take their idempotency claim in a short transaction
+// before they submit (IdempotencyGuard.executeDetached) instead of holding one open while the batch waits
+// for a connection. a line whose order already holds the product is answered as reserved without taking
+// stock again, so a retry stays harmless
+@Component
+public class CoalescedReservations {
+
+    private final ProductStockRepository productStockRepository;
+
+    private final StockReservationRepository stockReservationRepository;
+
+    private final HotStockRepository hotStockRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final boolean enabled;
+
+    private final MicroBatcher<Long, HotStockEntry, Optional<ReservedStock>> batcher;
+
+    public CoalescedReservations(ProductStockRepository productStockRepository,
+            StockReservationRepository stockReservationRepository, HotStockRepository hotStockRepository,
+            TransactionalOperator transactionalOperator, MeterRegistry meterRegistry,
+            @Value("${product.coalescing.enabled:false}") boolean enabled,
+            @Value("${product.coalescing.window:PT0.002S}") Duration window,
+            @Value("${product.coalescing.max-batch:64}") int maxBatch) {
+        this.productStockRepository = productStockRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.hotStockRepository = hotStockRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.enabled = enabled;
+        this.batcher = new MicroBatcher<>("product.reservation.coalesced", window, maxBatch, meterRegistry,
+                this::reserveBatch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // same answer as ProductStockRepository.reserve: the price and the stock left, empty when missing or short
+    public Mono<ReservedStock> reserve(Long orderId, Long productId, Integer quantity, LocalDateTime expiresAt) {
+        return batcher.submit(productId, new HotStockEntry(orderId, productId, quantity, expiresAt))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    private Mono<List<Optional<ReservedStock>>> reserveBatch(Long productId, List<HotStockEntry> lines) {
+        List<Long> orderIds = lines.stream().map(HotStockEntry::getOrderId).toList();
+        Mono<List<Optional<ReservedStock>>> batch = productStockRepository.lockStock(productId)
+                .flatMap(stock -> stockReservationRepository.heldOrders(productId, orderIds)
+                        .flatMap(held -> {
+                            List<HotStockEntry> granted = new ArrayList<>();
+                            List<Optional<ReservedStock>> answers = decide(stock, held, lines, granted);
+                            return (granted.isEmpty() ? Mono.just(0L) : hotStockRepository.applyHolds(granted))
+                                    .thenReturn(answers);
+                        }))
+                // a missing product refuses every line
+                .switchIfEmpty(Mono.fromSupplier(
+                        () -> Collections.nCopies(lines.size(), Optional.<ReservedStock>empty())));
+        return transactionalOperator.transactional(batch);
+    }
+
+    // first come first served: a line too big for what is left is refused, the smaller ones after it can
+    // still be granted. an order appearing twice gets the answer of its first line
+    private List<Optional<ReservedStock>> decide(ReservedStock stock, Set<Long> held, List<HotStockEntry> lines,
+            List<HotStockEntry> granted) {
+        int remaining = stock.getRemainingStock();
+        Map<Long, Optional<ReservedStock>> decided = new HashMap<>();
+        List<Optional<ReservedStock>> answers = new ArrayList<>(lines.size());
+        for (HotStockEntry line : lines) {
+            Optional<ReservedStock> answer = decided.get(line.getOrderId());
+            if (answer == null) {
+                if (held.contains(line.getOrderId())) {
+                    answer = Optional.of(new ReservedStock(stock.getPrice(), remaining));
+                } else if (line.getQuantity() <= remaining) {
+                    remaining -= line.getQuantity();
+                    granted.add(line);
+                    answer = Optional.of(new ReservedStock(stock.getPrice(), remaining));
+                } else {
+                    answer = Optional.empty();
+                }
+                decided.put(line.getOrderId(), answer);
+            }
+            answers.add(answer);
+        }
+        return answers;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.project.product.reservation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// what a release gave back to one product, read back from the statement that gave it back
+@Getter
+@AllArgsConstructor
+public class ReleasedStock {
+
+    private final Integer quantity;
+
+    private final Integer remainingStock;
+
+}
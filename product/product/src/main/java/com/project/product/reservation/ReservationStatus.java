@@ -0,0 +1,9 @@
+package com.project.product.reservation;
+
+// HELD takes the stock until the order is decided, CONFIRMED keeps it for good,
+// RELEASED has put it back (payment failed, order failed or the hold expired)
+public enum ReservationStatus {
+    HELD,
+    CONFIRMED,
+    RELEASED
+}
@@ -0,0 +1,99 @@
+package com.project.product.reservation;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.project.product.cache.ProductCatalogCache;
+import com.project.product.hotsku.HotSkuStock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// gives back the stock of holds nobody confirmed or released before they expired, e.g. when the
+// order-update-fail event or the orchestrator itself was lost. a paid order is confirmed by the saga
+// itself before it is announced COMPLETED, so only holds of orders that never got paid are still HELD
+// here. every tick releases expired holds in batches of batch-size, one statement per batch, until none
+// are left
+@Slf4j
+@Component
+public class ReservationSweeper {
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private HotSkuStock hotSkuStock;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.reservation.sweep-interval:PT5S}")
+    private Duration interval;
+
+    @Value("${product.reservation.sweep-batch-size:500}")
+    private int batchSize;
+
+    private Counter releasedProducts;
+
+    private Disposable sweeper;
+
+    @PostConstruct
+    public void start() {
+        releasedProducts = Counter.builder("product.reservation.expired")
+                .description("products restocked from expired holds")
+                .register(meterRegistry);
+        sweeper = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> sweep()
+                        .onErrorResume(error -> {
+                            log.error("Reservation sweep failed: {}", error.getMessage());
+                            return Mono.just(0);
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    // returns how many products got stock back
+    public Mono<Integer> sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        return releaseBatch(now)
+                .expand(released -> released.isEmpty() ? Mono.empty() : releaseBatch(now))
+                .map(Map::size)
+                .reduce(0, Integer::sum)
+                .doOnNext(products -> {
+                    if (products > 0) {
+                        log.info("Released expired holds on {} product(s)", products);
+                    }
+                });
+    }
+
+    private Mono<Map<Long, ReleasedStock>> releaseBatch(LocalDateTime now) {
+        return stockReservationRepository.releaseExpired(now, batchSize)
+                .doOnNext(released -> {
+                    released.forEach((id, stock) -> productCatalogCache.updateStock(id,
+                            hotSkuStock.restock(id, stock)));
+                    releasedProducts.increment(released.size());
+                });
+    }
+
+}
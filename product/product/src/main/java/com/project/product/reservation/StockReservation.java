@@ -0,0 +1,38 @@
+package com.project.product.reservation;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// stock of one order line taken from a product, written in the same statement that took it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("stock_reservation")
+public class StockReservation {
+
+    @Id
+    private Long id;
+
+    private Long order_id;
+
+    private Long product_id;
+
+    private Integer quantity;
+
+    private String status;
+
+    private LocalDateTime expires_at;
+
+    private LocalDateTime created_at;
+
+    private LocalDateTime updated_at;
+
+}
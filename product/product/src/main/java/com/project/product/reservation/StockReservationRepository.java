@@ -0,0 +1,35 @@
+package com.project.product.reservation;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// settles the holds written by ProductStockRepository.reserve/reserveAll. only HELD rows change, so
+// confirming or releasing an order twice, or releasing it while the sweeper expires it, moves the stock once.
+// the one exception is retake, for a paid order confirmed after the sweeper released its expired hold
+public interface StockReservationRepository {
+
+    Flux<StockReservation> findByOrderId(Long orderId);
+
+    // the orders among orderIds whose hold of the product is still in force (HELD or CONFIRMED). a released
+    // hold does not count, its stock is back on the product
+    Mono<Set<Long>> heldOrders(Long productId, Collection<Long> orderIds);
+
+    // keep the stock held for the order, returns how many lines were confirmed
+    Mono<Long> confirm(Long orderId);
+
+    // takes the stock of released holds of the order (product id -> quantity) again and confirms them, all
+    // lines or none. returns product id -> stock left, empty when any product can no longer cover its line
+    Mono<Map<Long, Integer>> retake(Long orderId, Map<Long, Integer> quantities);
+
+    // put the stock held for the order back, returns product id -> what was given back
+    Mono<Map<Long, ReleasedStock>> release(Long orderId);
+
+    // release up to limit holds that expired before now, returns product id -> what was given back
+    Mono<Map<Long, ReleasedStock>> releaseExpired(LocalDateTime now, int limit);
+
+}
@@ -0,0 +1,162 @@
+package com.project.product.reservation;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.project.product.Product;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public class StockReservationRepositoryImpl implements StockReservationRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final String productTable;
+
+    public StockReservationRepositoryImpl(R2dbcEntityTemplate template, TransactionalOperator transactionalOperator) {
+        this.template = template;
+        this.transactionalOperator = transactionalOperator;
+        this.databaseClient = template.getDatabaseClient();
+        this.productTable = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(Product.class)
+                .getTableName()
+                .toSql(IdentifierProcessing.NONE);
+    }
+
+    @Override
+    public Flux<StockReservation> findByOrderId(Long orderId) {
+        return template.select(StockReservation.class)
+                .matching(Query.query(Criteria.where("order_id").is(orderId)))
+                .all();
+    }
+
+    @Override
+    public Mono<Set<Long>> heldOrders(Long productId, Collection<Long> orderIds) {
+        return databaseClient.sql("SELECT order_id FROM stock_reservation"
+                + " WHERE product_id = :productId AND order_id = ANY(CAST(:orderIds AS BIGINT[]))"
+                + " AND status IN (:held, :confirmed)")
+                .bind("productId", productId)
+                .bind("held", ReservationStatus.HELD.name())
+                .bind("confirmed", ReservationStatus.CONFIRMED.name())
+                .bind("orderIds", orderIds.toArray(new Long[0]))
+                .map(row -> row.get("order_id", Long.class))
+                .all()
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Mono<Long> confirm(Long orderId) {
+        return databaseClient.sql("UPDATE stock_reservation SET status = :confirmed, updated_at = :now"
+                + " WHERE order_id = :orderId AND status = :held")
+                .bind("confirmed", ReservationStatus.CONFIRMED.name())
+                .bind("now", LocalDateTime.now())
+                .bind("orderId", orderId)
+                .bind("held", ReservationStatus.HELD.name())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // the guarded UPDATE of a reservation, joined on the released lines. a product that cannot cover its line
+    // or a hold that is no longer RELEASED leaves a short count, and the transaction is rolled back so no
+    // line keeps its stock alone
+    @Override
+    public Mono<Map<Long, Integer>> retake(Long orderId, Map<Long, Integer> quantities) {
+        Long[] ids = quantities.keySet().toArray(new Long[0]);
+        Integer[] amounts = quantities.values().toArray(new Integer[0]);
+
+        Mono<Map<Long, Integer>> retake = databaseClient.sql("WITH taken AS ("
+                + " UPDATE " + productTable + " AS p"
+                + " SET stock_quantity = p.stock_quantity - v.quantity, published_at = :now"
+                + " FROM unnest(CAST(:ids AS BIGINT[]), CAST(:quantities AS INTEGER[])) AS v(id, quantity)"
+                + " WHERE p.id = v.id AND p.stock_quantity >= v.quantity"
+                + " RETURNING p.id, p.stock_quantity),"
+                + " confirmed AS ("
+                + " UPDATE stock_reservation SET status = :confirmed, updated_at = :now"
+                + " WHERE order_id = :orderId AND status = :released AND product_id IN (SELECT id FROM taken)"
+                + " RETURNING product_id)"
+                + " SELECT t.id, t.stock_quantity FROM taken AS t JOIN confirmed AS c ON c.product_id = t.id")
+                .bind("now", LocalDateTime.now())
+                .bind("ids", ids)
+                .bind("quantities", amounts)
+                .bind("confirmed", ReservationStatus.CONFIRMED.name())
+                .bind("orderId", orderId)
+                .bind("released", ReservationStatus.RELEASED.name())
+                .map(row -> Map.entry(row.get("id", Long.class), row.get("stock_quantity", Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMap(taken -> taken.size() == quantities.size()
+                        ? Mono.just(taken)
+                        : Mono.error(new IncompleteRetakeException()));
+
+        return transactionalOperator.transactional(retake)
+                .onErrorResume(IncompleteRetakeException.class, error -> Mono.just(Map.of()));
+    }
+
+    @Override
+    public Mono<Map<Long, ReleasedStock>> release(Long orderId) {
+        return releaseAndRestock("SELECT id FROM stock_reservation WHERE order_id = :orderId AND status = :held",
+                LocalDateTime.now())
+                .bind("orderId", orderId)
+                .map(row -> Map.entry(row.get("id", Long.class), new ReleasedStock(
+                        row.get("quantity", Integer.class), row.get("stock_quantity", Integer.class))))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    // SKIP LOCKED lets a release by order id, or a second instance sweeping, go on with other rows
+    // instead of waiting for this batch
+    @Override
+    public Mono<Map<Long, ReleasedStock>> releaseExpired(LocalDateTime now, int limit) {
+        return releaseAndRestock("SELECT id FROM stock_reservation WHERE status = :held AND expires_at <= :now"
+                + " ORDER BY expires_at LIMIT :limit FOR UPDATE SKIP LOCKED", now)
+                .bind("limit", limit)
+                .map(row -> Map.entry(row.get("id", Long.class), new ReleasedStock(
+                        row.get("quantity", Integer.class), row.get("stock_quantity", Integer.class))))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    // one statement marks the selected holds RELEASED and adds their summed quantities back per product,
+    // so the stock cannot come back without the hold being closed or the other way round. a row released
+    // concurrently is re-checked against status = HELD after its lock is released and skipped
+    private DatabaseClient.GenericExecuteSpec releaseAndRestock(String selectHolds, LocalDateTime now) {
+        return databaseClient.sql("WITH released AS ("
+                + " UPDATE stock_reservation SET status = :released, updated_at = :now"
+                + " WHERE id IN (" + selectHolds + ") AND status = :held"
+                + " RETURNING product_id, quantity)"
+                + " UPDATE " + productTable + " AS p"
+                + " SET stock_quantity = p.stock_quantity + r.quantity, published_at = :now"
+                + " FROM (SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id) AS r"
+                + " WHERE p.id = r.product_id"
+                + " RETURNING p.id, CAST(r.quantity AS INTEGER) AS quantity, p.stock_quantity")
+                .bind("released", ReservationStatus.RELEASED.name())
+                .bind("held", ReservationStatus.HELD.name())
+                .bind("now", now);
+    }
+
+    // only used to roll the retake back, so no stack trace is filled in
+    private static class IncompleteRetakeException extends RuntimeException {
+
+        IncompleteRetakeException() {
+            super("Released holds could not be taken again", null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    quantity INTEGER NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    UNIQUE (order_id, product_id)
+);
+
+-- the sweeper only ever scans the held rows, oldest expiry first
+CREATE INDEX IF NOT EXISTS stock_reservation_held_idx ON stock_reservation (expires_at) WHERE status = 'HELD';
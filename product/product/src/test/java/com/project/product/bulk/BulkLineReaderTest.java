@@ -0,0 +1,60 @@
+package com.project.product.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Flux;
+
+public class BulkLineReaderTest {
+
+    private final BulkLineReader reader = new BulkLineReader(new ObjectMapper());
+
+    // the body split at arbitrary points, like it arrives from the network
+    private Flux<DataBuffer> body(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void readsCsvByHeaderAndReportsBadLines() {
+        List<BulkLine<BulkProductRow>> lines = reader.read(
+                body("id,price,description,stock_quantity\n7,1.5,\"big, ", "red \"\"box\"\"\",3\n",
+                        "\n8,abc,,1\n9,2\n"),
+                BulkLineReader.TEXT_CSV, BulkProductRow.class)
+                .collectList()
+                .block();
+
+        assertEquals(3, lines.size());
+        assertEquals(2, lines.get(0).number());
+        assertEquals(new BulkProductRow(7L, 1.5f, null, "big, red \"box\"", null, 3), lines.get(0).row());
+        assertEquals(4, lines.get(1).number());
+        assertNull(lines.get(1).row());
+        assertNotNull(lines.get(1).error());
+        assertEquals("Expected 4 fields, got 2", lines.get(2).error());
+    }
+
+    @Test
+    void readsNdjsonLineByLine() {
+        List<BulkLine<StockAdjustmentRow>> lines = reader.read(
+                body("{\"id\":1,\"quantity\":5}\n{\"id\":2,", "\"quantity\":-1}\nnot json\n"),
+                MediaType.APPLICATION_NDJSON, StockAdjustmentRow.class)
+                .collectList()
+                .block();
+
+        assertEquals(new StockAdjustmentRow(1L, 5), lines.get(0).row());
+        assertEquals(new StockAdjustmentRow(2L, -1), lines.get(1).row());
+        assertNotNull(lines.get(2).error());
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.project.product.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.project.product.Product;
+
+import reactor.core.publisher.Mono;
+
+public class ProductCatalogCacheTest {
+
+    private Product product(Long id) {
+        return Product.builder()
+                .id(id)
+                .price(10f)
+                .stock_quantity(5)
+                .build();
+    }
+
+    @Test
+    void loadsOnceAndServesFromCache() {
+        ProductCatalogCache cache = new ProductCatalogCache(10, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        Product first = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Mono.just(product(id));
+        }).block();
+        Product second = cache.get(1L, id -> {
+            loads.incrementAndGet();
+            return Mono.just(product(id));
+        }).block();
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() {
+        ProductCatalogCache cache = new ProductCatalogCache(10, Duration.ZERO);
+        cache.put(product(1L));
+
+        assertNull(cache.getIfPresent(1L));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void sizeIsBounded() {
+        ProductCatalogCache cache = new ProductCatalogCache(3, Duration.ofMinutes(1));
+        for (long id = 1; id <= 10; id++) {
+            cache.put(product(id));
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(7, cache.getEvictions());
+    }
+
+    @Test
+    void callersCannotChangeTheCachedProduct() {
+        ProductCatalogCache cache = new ProductCatalogCache(10, Duration.ofMinutes(1));
+        Product product = product(1L);
+        cache.put(product);
+
+        product.setStock_quantity(0);
+        cache.getIfPresent(1L).setStock_quantity(1);
+
+        assertEquals(5, cache.getIfPresent(1L).getStock_quantity());
+    }
+
+    @Test
+    void loadDoesNotOverwriteANewerWrite() {
+        ProductCatalogCache cache = new ProductCatalogCache(10, Duration.ofMinutes(1));
+
+        Product loaded = cache.get(1L, id -> {
+            Product written = product(id);
+            written.setStock_quantity(3);
+            cache.put(written);
+            return Mono.just(product(id));
+        }).block();
+
+        assertEquals(5, loaded.getStock_quantity());
+        assertEquals(3, cache.getIfPresent(1L).getStock_quantity());
+    }
+
+    @Test
+    void invalidateAndStockRefresh() {
+        ProductCatalogCache cache = new ProductCatalogCache(10, Duration.ofMinutes(1));
+        cache.put(product(1L));
+
+        cache.updateStock(1L, 2);
+        assertEquals(2, cache.getIfPresent(1L).getStock_quantity());
+
+        cache.invalidate(1L);
+        assertNull(cache.getIfPresent(1L));
+    }
+}
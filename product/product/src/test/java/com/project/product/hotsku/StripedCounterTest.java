@@ -0,0 +1,65 @@
+package com.project.product.hotsku;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class StripedCounterTest {
+
+    @Test
+    void takesAcrossStripesAndRefusesWhatIsNotThere() {
+        StripedCounter counter = new StripedCounter(4, 10);
+
+        // no single stripe holds 7, the take is gathered from several
+        assertTrue(counter.tryTake(7));
+        assertEquals(3, counter.sum());
+        assertFalse(counter.tryTake(4));
+        assertEquals(3, counter.sum());
+
+        counter.add(5);
+        assertTrue(counter.tryTake(8));
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    void neverSellsMoreThanTheStockUnderContention() throws InterruptedException {
+        int stock = 10_000;
+        StripedCounter counter = new StripedCounter(8, stock);
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    int quantity = 1 + i % 3;
+                    if (counter.tryTake(quantity)) {
+                        sold.addAndGet(quantity);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(stock, sold.get() + counter.sum());
+        assertTrue(counter.sum() >= 0);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.DTO.order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.example.DTO.money.Money;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// an order with several lines, sent to product as one request so the whole basket is reserved at once
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketDTOSend {
+
+    @NotNull
+    private Long id;
+
+    @NotNull
+    private Long customer_id;
+
+    private String order_status;
+
+    private Money total_amount;
+
+    private LocalDateTime order_date;
+
+    @NotEmpty
+    @Valid
+    private List<BasketItemDTO> items;
+
+}
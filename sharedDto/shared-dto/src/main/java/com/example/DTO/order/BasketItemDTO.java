@@ -0,0 +1,26 @@
+package com.example.DTO.order;
+
+import com.example.DTO.money.Money;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of a basket, the price is filled in by product when the stock is reserved
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BasketItemDTO {
+
+    @NotNull
+    private Long product_id;
+
+    @NotNull
+    @Positive
+    private Integer quantity;
+
+    private Money price;
+
+}
@@ -0,0 +1,187 @@
+package com.example.batch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+// groups concurrent requests for the same key and hands them to the executor as one list, in arrival
+// order. a batch leaves when it has maxBatch requests or window after its first request, and per key only
+// one batch runs at a time: what arrives meanwhile waits and leaves as the next batch as soon as the
+// running one is done. the executor answers one result per request, in the same order, and every caller
+// gets its own result (or the error of the whole batch) on its Mono
+public class MicroBatcher<K, I, O> {
+
+    private final Map<K, KeyQueue> queues = new ConcurrentHashMap<>();
+
+    private final BiFunction<K, List<I>, Mono<List<O>>> executor;
+
+    private final Duration window;
+
+    private final int maxBatch;
+
+    private final Scheduler timer;
+
+    private final DistributionSummary batchSize;
+
+    public MicroBatcher(String name, Duration window, int maxBatch, MeterRegistry registry,
+            BiFunction<K, List<I>, Mono<List<O>>> executor) {
+        this(name, window, maxBatch, registry, executor, Schedulers.parallel());
+    }
+
+    MicroBatcher(String name, Duration window, int maxBatch, MeterRegistry registry,
+            BiFunction<K, List<I>, Mono<List<O>>> executor, Scheduler timer) {
+        this.executor = executor;
+        this.window = window;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.timer = timer;
+        this.batchSize = DistributionSummary.builder(name + ".batch.size")
+                .register(registry);
+    }
+
+    public Mono<O> submit(K key, I item) {
+        return Mono.defer(() -> {
+            Request request = new Request(item);
+            while (true) {
+                KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+                if (queue.add(request)) {
+                    return request.result.asMono();
+                }
+                // the queue went idle and was dropped in between, the next one takes the request
+            }
+        });
+    }
+
+    // keys with requests waiting or a batch running
+    public int activeKeys() {
+        return queues.size();
+    }
+
+    private final class KeyQueue {
+
+        private final K key;
+
+        private final List<Request> waiting = new ArrayList<>();
+
+        private boolean running;
+
+        private boolean timerSet;
+
+        private boolean dropped;
+
+        KeyQueue(K key) {
+            this.key = key;
+        }
+
+        boolean add(Request request) {
+            List<Request> batch = null;
+            synchronized (this) {
+                if (dropped) {
+                    return false;
+                }
+                waiting.add(request);
+                if (!running) {
+                    if (waiting.size() >= maxBatch) {
+                        batch = take();
+                    } else if (!timerSet) {
+                        timerSet = true;
+                        timer.schedule(this::windowClosed, window.toNanos(), TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            run(batch);
+            return true;
+        }
+
+        private void windowClosed() {
+            List<Request> batch = null;
+            synchronized (this) {
+                timerSet = false;
+                if (!running && !waiting.isEmpty()) {
+                    batch = take();
+                }
+            }
+            run(batch);
+        }
+
+        // the requests that waited while a batch ran have had at least its duration to gather, they leave
+        // right away
+        private void batchDone() {
+            List<Request> batch = null;
+            synchronized (this) {
+                running = false;
+                if (!waiting.isEmpty()) {
+                    batch = take();
+                } else if (!timerSet) {
+                    dropped = true;
+                    queues.remove(key, this);
+                }
+            }
+            run(batch);
+        }
+
+        // called holding the lock
+        private List<Request> take() {
+            int size = Math.min(waiting.size(), maxBatch);
+            List<Request> batch = new ArrayList<>(waiting.subList(0, size));
+            waiting.subList(0, size).clear();
+            running = true;
+            return batch;
+        }
+
+        private void run(List<Request> batch) {
+            if (batch == null) {
+                return;
+            }
+            batchSize.record(batch.size());
+            List<I> items = new ArrayList<>(batch.size());
+            for (Request request : batch) {
+                items.add(request.item);
+            }
+            Mono.defer(() -> executor.apply(key, items))
+                    .subscribe(
+                            results -> {
+                                for (int i = 0; i < batch.size(); i++) {
+                                    if (i < results.size()) {
+                                        batch.get(i).result.tryEmitValue(results.get(i));
+                                    } else {
+                                        batch.get(i).result.tryEmitError(new IllegalStateException(
+                                                "Batch of " + key + " answered " + results.size() + " of "
+                                                        + batch.size() + " requests"));
+                                    }
+                                }
+                            },
+                            error -> {
+                                batch.forEach(request -> request.result.tryEmitError(error));
+                                batchDone();
+                            },
+                            () -> {
+                                // an empty executor answer leaves nobody waiting forever
+                                batch.forEach(request -> request.result.tryEmitEmpty());
+                                batchDone();
+                            });
+        }
+    }
+
+    private final class Request {
+
+        private final I item;
+
+        private final Sinks.One<O> result = Sinks.one();
+
+        Request(I item) {
+            this.item = item;
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package com.example.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import com.example.metrics.CacheMetrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+// bounded, TTL based cache for the read paths of a service. reads never lock; when the cache is full the
+// entry closest to expiry out of a small sample is evicted.
+// every entry carries the version of the row it came from, and a loaded value is only cached when no live
+// entry knows a newer version: a load that raced a write cannot put the value from before the write back.
+// a write can leave its version behind as a marker without a value, which refuses older loads until it
+// expires. mutable values are stored as private copies made by copy, and every reader gets its own copy
+public class VersionedCache<K, V> implements MeterBinder {
+
+    // a value written through with put, no load replaces it before it expires
+    public static final long WRITTEN = Long.MAX_VALUE;
+
+    // a value loaded from a row without a version, it only fills an empty or expired slot
+    public static final long UNVERSIONED = Long.MIN_VALUE;
+
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final String name;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final UnaryOperator<V> copy;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public VersionedCache(String name, int maxSize, Duration ttl, UnaryOperator<V> copy) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.copy = copy;
+    }
+
+    // serve from the cache, otherwise load and offer the value at the version it was read at
+    public Mono<V> get(K key, Function<K, Mono<V>> loader, ToLongFunction<V> versionOf) {
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return loader.apply(key).doOnNext(value -> offer(key, value, versionOf.applyAsLong(value)));
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.value() == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() - System.nanoTime() < 0) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy.apply(entry.value());
+    }
+
+    // caches a loaded value unless the entry already knows a newer version
+    public void offer(K key, V value, long version) {
+        if (key == null || value == null) {
+            return;
+        }
+        entries.compute(key, (k, entry) -> isNewer(entry, version)
+                ? entry
+                : new Entry<>(copy.apply(value), version, System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    // write-through after the value was written, replaces whatever is cached
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(copy.apply(value), WRITTEN, System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    // changes a copy of the cached value and keeps its version and expiry, nothing happens when it is missing
+    public void update(K key, Consumer<V> change) {
+        entries.computeIfPresent(key, (k, entry) -> {
+            if (entry.value() == null) {
+                return entry;
+            }
+            V updated = copy.apply(entry.value());
+            change.accept(updated);
+            return new Entry<>(updated, entry.version(), entry.expiresAt());
+        });
+    }
+
+    // the row was written at version: the cached value is dropped and loads of older versions are refused
+    // until the marker expires
+    public void invalidate(K key, long version) {
+        entries.compute(key, (k, entry) -> isNewer(entry, version)
+                ? entry
+                : new Entry<>(null, version, System.nanoTime() + ttlNanos));
+        trim();
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CacheMetrics.bind(registry, name, this, VersionedCache::getHits, VersionedCache::getMisses,
+                VersionedCache::getEvictions, VersionedCache::size);
+    }
+
+    private boolean isNewer(Entry<V> entry, long version) {
+        return entry != null && entry.version() > version && entry.expiresAt() - System.nanoTime() >= 0;
+    }
+
+    private void trim() {
+        while (entries.size() > maxSize) {
+            evictOne();
+        }
+    }
+
+    private void evictOne() {
+        Map.Entry<K, Entry<V>> victim = null;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && iterator.hasNext(); i++) {
+            Map.Entry<K, Entry<V>> candidate = iterator.next();
+            if (victim == null || candidate.getValue().expiresAt() < victim.getValue().expiresAt()) {
+                victim = candidate;
+            }
+        }
+        if (victim != null && entries.remove(victim.getKey(), victim.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    // value is null for the marker a write leaves behind
+    private record Entry<V>(V value, long version, long expiresAt) {
+    }
+
+}
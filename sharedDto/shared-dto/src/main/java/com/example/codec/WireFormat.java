@@ -0,0 +1,38 @@
+package com.example.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+// the formats inter-service messages can travel in. JSON stays the default and is always accepted;
+// CBOR is the same Jackson data model in a binary encoding: field names stay self-describing, so no
+// schema registry is needed, but numbers, strings and dates are length-prefixed binary instead of text
+public final class WireFormat {
+
+    public static final String JSON = "json";
+
+    public static final String CBOR = "cbor";
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    // Kafka record header carrying the media type of the value
+    public static final String CONTENT_TYPE_HEADER = "contentType";
+
+    private static final ObjectMapper CBOR_MAPPER = configure(new CBORMapper());
+
+    private WireFormat() {
+    }
+
+    // thread safe and shared, building a mapper per message would throw away its serializer caches
+    public static ObjectMapper cborMapper() {
+        return CBOR_MAPPER;
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper.findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.codec;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+// accepts application/cbor request bodies and answers in CBOR when the caller asks for it with Accept,
+// JSON stays the default for everyone else (curl, browsers, the swagger page).
+// wire-format.web.enabled=false turns it off
+@AutoConfiguration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "wire-format.web.enabled", havingValue = "true", matchIfMissing = true)
+public class WireFormatWebAutoConfiguration implements WebFluxConfigurer {
+
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new Jackson2CborDecoder(WireFormat.cborMapper()));
+        configurer.customCodecs().register(new Jackson2CborEncoder(WireFormat.cborMapper()));
+    }
+
+}
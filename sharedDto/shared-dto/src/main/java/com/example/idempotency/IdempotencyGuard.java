@@ -0,0 +1,169 @@
+package com.example.idempotency;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+// runs an operation at most once per order id. the first call claims (operation, order id) in the
+// processed_request table (com/example/idempotency/processed_request.sql) in the same transaction as the
+// operation and stores its response there; a repeated call gets the stored response back without doing
+// the operation again. a duplicate arriving while the first call is still running waits on the claim row
+// and then reads it. each service declares the bean with the exception it answers errors with.
+// executeDetached is for an operation that commits on a connection of its own, see there
+@Slf4j
+public class IdempotencyGuard {
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ObjectMapper objectMapper;
+
+    private final Function<String, ? extends Throwable> failure;
+
+    // recent responses as JSON, answers most retries without a database round trip
+    private final Map<String, String> recent;
+
+    public IdempotencyGuard(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+            ObjectMapper objectMapper, int cacheSize, Function<String, ? extends Throwable> failure) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.objectMapper = objectMapper;
+        this.failure = failure;
+        this.recent = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public <T> Mono<T> execute(String operation, Object orderId, Class<T> type, Supplier<Mono<T>> action) {
+        if (orderId == null) {
+            return action.get();
+        }
+        String id = String.valueOf(orderId);
+        String key = operation + ":" + id;
+
+        String cached = recent.get(key);
+        if (cached != null) {
+            log.info("Repeated {} for order {}, answered from memory", operation, id);
+            return Mono.fromCallable(() -> read(cached, type));
+        }
+
+        Mono<Stored<T>> once = claim(operation, id)
+                .flatMap(claimed -> claimed
+                        ? action.get().flatMap(result -> store(operation, id, result))
+                        : storedResponse(operation, id)
+                                .map(json -> new Stored<>(read(json, type), json))
+                                .doOnNext(stored -> log.info("Repeated {} for order {}, answered from the "
+                                        + "processed requests", operation, id)));
+
+        return transactionalOperator.transactional(once)
+                .doOnNext(stored -> recent.put(key, stored.json()))
+                .map(Stored::value);
+    }
+
+    // for an operation that is idempotent by its own ledger and runs in a transaction of its own, like a
+    // coalesced batch: holding the claim transaction open while it waits on that batch would keep one pooled
+    // connection per caller, and with as many callers as connections the batch never gets one. the claim and
+    // the look-up of a stored response are one short transaction, the store is a statement after the
+    // operation answered. a claim still without a response (a duplicate running at the same time, or a crash
+    // in between) runs the operation again, which answers it from its ledger
+    public <T> Mono<T> executeDetached(String operation, Object orderId, Class<T> type,
+            Supplier<Mono<T>> action) {
+        if (orderId == null) {
+            return action.get();
+        }
+        String id = String.valueOf(orderId);
+        String key = operation + ":" + id;
+
+        String cached = recent.get(key);
+        if (cached != null) {
+            log.info("Repeated {} for order {}, answered from memory", operation, id);
+            return Mono.fromCallable(() -> read(cached, type));
+        }
+
+        return transactionalOperator.transactional(claim(operation, id).then(response(operation, id)))
+                .flatMap(stored -> stored.isPresent()
+                        ? Mono.fromCallable(() -> new Stored<>(read(stored.get(), type), stored.get()))
+                                .doOnNext(repeated -> log.info("Repeated {} for order {}, answered from the "
+                                        + "processed requests", operation, id))
+                        : action.get().flatMap(result -> store(operation, id, result)))
+                .doOnNext(stored -> recent.put(key, stored.json()))
+                .map(Stored::value);
+    }
+
+    private Mono<Boolean> claim(String operation, String orderId) {
+        return databaseClient.sql("INSERT INTO processed_request (operation, order_id, created_at)"
+                + " VALUES (:operation, :orderId, :now) ON CONFLICT DO NOTHING")
+                .bind("operation", operation)
+                .bind("orderId", orderId)
+                .bind("now", LocalDateTime.now())
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    private <T> Mono<Stored<T>> store(String operation, String orderId, T result) {
+        String json = write(result);
+        return databaseClient.sql("UPDATE processed_request SET response = :response"
+                + " WHERE operation = :operation AND order_id = :orderId")
+                .bind("response", json)
+                .bind("operation", operation)
+                .bind("orderId", orderId)
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(new Stored<>(result, json));
+    }
+
+    private Mono<String> storedResponse(String operation, String orderId) {
+        return response(operation, orderId)
+                .flatMap(response -> response
+                        .map(Mono::just)
+                        .orElseGet(() -> Mono.error(failure.apply(
+                                "Request " + operation + " for order " + orderId + " has no stored response"))));
+    }
+
+    private Mono<Optional<String>> response(String operation, String orderId) {
+        return databaseClient.sql("SELECT response FROM processed_request"
+                + " WHERE operation = :operation AND order_id = :orderId")
+                .bind("operation", operation)
+                .bind("orderId", orderId)
+                .map(row -> Optional.ofNullable(row.get("response", String.class)))
+                .one();
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize response " + value.getClass(), e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot read stored response as " + type, e);
+        }
+    }
+
+    private record Stored<T>(T value, String json) {
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.example.kafka;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+// producer settings shared by every service that publishes order messages: small records are
+// held for lingerMs so they leave in compressed batches, and idempotence with acks=all keeps
+// retries from duplicating or reordering them
+@Data
+public class ProducerProfile {
+
+    private int lingerMs = 10;
+
+    private int batchSize = 64 * 1024;
+
+    // none, gzip, snappy, lz4 or zstd
+    private String compressionType = "lz4";
+
+    private boolean idempotence = true;
+
+    private String acks = "all";
+
+    // at most 5 keeps ordering with idempotence enabled
+    private int maxInFlightRequestsPerConnection = 5;
+
+    private int deliveryTimeoutMs = 120_000;
+
+    private int requestTimeoutMs = 30_000;
+
+    // keys are the kafka ProducerConfig names, so this module does not need the kafka client
+    public Map<String, Object> toConfig() {
+        Map<String, Object> config = new HashMap<>();
+        config.put("linger.ms", lingerMs);
+        config.put("batch.size", batchSize);
+        config.put("compression.type", compressionType);
+        config.put("enable.idempotence", idempotence);
+        config.put("acks", acks);
+        config.put("max.in.flight.requests.per.connection", maxInFlightRequestsPerConnection);
+        config.put("delivery.timeout.ms", deliveryTimeoutMs);
+        config.put("request.timeout.ms", requestTimeoutMs);
+        return config;
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.example.kafka;
+
+// topics of the Kafka saga mode. commands are keyed by the id their consumer works on, so all commands
+// for one product (or customer) land on one partition and one consumer; replies are keyed by order id
+public final class SagaTopics {
+
+    // new orders for the orchestrator, keyed by order id
+    public static final String ORDER_CREATED = "order-created";
+
+    // OrdersDTOSend to reserve, keyed by product id
+    public static final String RESERVE_STOCK = "reserve-stock";
+
+    // the reserve-stock answer, the same DTO as /inventory/check-deduct-stock returns
+    public static final String RESERVE_STOCK_REPLY = "reserve-stock-reply";
+
+    // OrdersDTOSend to pay, keyed by customer id
+    public static final String DEBIT_BALANCE = "debit-balance";
+
+    // the debit-balance answer, the same DTO as /balance/check-balance returns
+    public static final String DEBIT_BALANCE_REPLY = "debit-balance-reply";
+
+    // OrdersDTOSend whose payment went through, its held stock is kept. keyed by order id
+    public static final String CONFIRM_STOCK = "confirm-stock";
+
+    // the confirm-stock answer, the same DTO as /inventory/confirm-stock returns
+    public static final String CONFIRM_STOCK_REPLY = "confirm-stock-reply";
+
+    private SagaTopics() {
+    }
+
+}
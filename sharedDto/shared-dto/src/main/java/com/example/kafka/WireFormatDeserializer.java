@@ -0,0 +1,109 @@
+package com.example.kafka;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.ClassUtils;
+
+import com.example.codec.WireFormat;
+
+// value deserializer reading whatever WireFormatSerializer wrote: records with a CBOR contentType header
+// are decoded as CBOR into the __TypeId__ class (or the configured default type), everything else goes to
+// spring's JsonDeserializer with the same configuration. consumers switch to this first, producers can
+// then move to CBOR one by one
+public class WireFormatDeserializer implements Deserializer<Object> {
+
+    public static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+
+    private List<String> trustedPackages = List.of();
+
+    private Class<?> defaultType;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object trusted = configs.get(JsonDeserializer.TRUSTED_PACKAGES);
+        if (trusted != null) {
+            trustedPackages = Arrays.stream(trusted.toString().split(",")).map(String::trim).toList();
+        }
+        Object type = configs.get(isKey ? JsonDeserializer.KEY_DEFAULT_TYPE : JsonDeserializer.VALUE_DEFAULT_TYPE);
+        if (type instanceof Class<?> typeClass) {
+            defaultType = typeClass;
+        } else if (type != null) {
+            defaultType = load(type.toString());
+        }
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (headers == null || !WireFormat.APPLICATION_CBOR.equals(header(headers, WireFormat.CONTENT_TYPE_HEADER))) {
+            return json.deserialize(topic, headers, data);
+        }
+        Class<?> type = typeOf(headers);
+        try {
+            return WireFormat.cborMapper().readValue(data, type);
+        } catch (IOException e) {
+            throw new SerializationException("Can't deserialize CBOR data into " + type.getName(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+    private Class<?> typeOf(Headers headers) {
+        String typeId = header(headers, TYPE_ID_HEADER);
+        if (typeId == null) {
+            if (defaultType == null) {
+                throw new SerializationException("CBOR record without a type header and no default type");
+            }
+            return defaultType;
+        }
+        if (!isTrusted(typeId)) {
+            throw new SerializationException("The class '" + typeId + "' is not in the trusted packages: "
+                    + trustedPackages);
+        }
+        return load(typeId);
+    }
+
+    private boolean isTrusted(String className) {
+        if (trustedPackages.contains("*")) {
+            return true;
+        }
+        String packageName = ClassUtils.getPackageName(className);
+        return trustedPackages.stream().anyMatch(packageName::startsWith);
+    }
+
+    private Class<?> load(String className) {
+        try {
+            return ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new SerializationException("Unknown type " + className, e);
+        }
+    }
+
+    private String header(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+}
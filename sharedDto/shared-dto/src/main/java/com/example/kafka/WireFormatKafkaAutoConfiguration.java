@@ -0,0 +1,37 @@
+package com.example.kafka;
+
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+
+// messages are sent as kafka.wire-format (json by default, or cbor) and read in either format,
+// whatever the sending service is set to. applies to the factories Spring Boot builds; a service declaring
+// its own sets WireFormatSerializer / WireFormatDeserializer there. wire-format.kafka.enabled=false turns it off
+@AutoConfiguration
+@ConditionalOnClass(DefaultKafkaProducerFactoryCustomizer.class)
+@ConditionalOnProperty(name = "wire-format.kafka.enabled", havingValue = "true", matchIfMissing = true)
+public class WireFormatKafkaAutoConfiguration {
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer wireFormatProducerCustomizer(
+            @Value("${kafka.wire-format:json}") String wireFormat) {
+        return producerFactory -> producerFactory.updateConfigs(Map.of(
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, WireFormatSerializer.class,
+                WireFormatSerializer.WIRE_FORMAT_CONFIG, wireFormat));
+    }
+
+    @Bean
+    public DefaultKafkaConsumerFactoryCustomizer wireFormatConsumerCustomizer() {
+        return consumerFactory -> consumerFactory.updateConfigs(Map.of(
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, WireFormatDeserializer.class));
+    }
+
+}
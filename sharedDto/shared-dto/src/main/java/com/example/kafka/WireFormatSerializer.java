@@ -0,0 +1,61 @@
+package com.example.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.codec.WireFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+// value serializer writing JSON (through spring's JsonSerializer, byte for byte what it wrote before) or
+// CBOR, chosen with the "wire.format" producer property. the format goes into the contentType header
+// and the class into the usual __TypeId__ header, so WireFormatDeserializer can read either
+public class WireFormatSerializer implements Serializer<Object> {
+
+    public static final String WIRE_FORMAT_CONFIG = "wire.format";
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+
+    private boolean cbor;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object format = configs.get(WIRE_FORMAT_CONFIG);
+        cbor = format != null && WireFormat.CBOR.equalsIgnoreCase(format.toString());
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (!cbor || headers == null) {
+            return json.serialize(topic, headers, data);
+        }
+        headers.remove(WireFormat.CONTENT_TYPE_HEADER);
+        headers.add(WireFormat.CONTENT_TYPE_HEADER, WireFormat.APPLICATION_CBOR.getBytes(StandardCharsets.UTF_8));
+        headers.remove(WireFormatDeserializer.TYPE_ID_HEADER);
+        headers.add(WireFormatDeserializer.TYPE_ID_HEADER, data.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        try {
+            return WireFormat.cborMapper().writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Can't serialize " + data.getClass().getName() + " as CBOR", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+
+}
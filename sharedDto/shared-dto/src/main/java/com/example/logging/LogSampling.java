@@ -0,0 +1,25 @@
+package com.example.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+// markers for success-path log lines that only need to be seen now and then. each path gets its own
+// marker, so SamplingTurboFilter keeps 1 in N per path instead of 1 in N of everything
+public final class LogSampling {
+
+    public static final String SAMPLED = "SAMPLED";
+
+    private static final Marker SAMPLED_MARKER = MarkerFactory.getMarker(SAMPLED);
+
+    private LogSampling() {
+    }
+
+    public static Marker path(String name) {
+        Marker marker = MarkerFactory.getMarker(name);
+        if (!marker.contains(SAMPLED_MARKER)) {
+            marker.add(SAMPLED_MARKER);
+        }
+        return marker;
+    }
+
+}
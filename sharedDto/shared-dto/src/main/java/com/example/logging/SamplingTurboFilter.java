@@ -0,0 +1,42 @@
+package com.example.logging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+// lets through the first and then every N-th INFO (or lower) event of each LogSampling path and denies
+// the rest before the event is even created. events without a sampled marker, and WARN and above,
+// are never touched
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private int every = 100;
+
+    public void setEvery(int every) {
+        this.every = every;
+    }
+
+    public int getEvery() {
+        return every;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+            Throwable t) {
+        if (marker == null || level == null || level.isGreaterOrEqual(Level.WARN) || every <= 1
+                || !marker.contains(LogSampling.SAMPLED)) {
+            return FilterReply.NEUTRAL;
+        }
+        long count = counters.computeIfAbsent(marker.getName(), name -> new AtomicLong()).getAndIncrement();
+        return count % every == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.example.metrics;
+
+import java.util.function.ToDoubleFunction;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+// the meters Micrometer registers for the caches it knows (cache.gets with result hit or miss,
+// cache.evictions, cache.size), for the caches the services keep themselves
+public final class CacheMetrics {
+
+    private CacheMetrics() {
+    }
+
+    public static <C> void bind(MeterRegistry registry, String name, C cache, ToDoubleFunction<C> hits,
+            ToDoubleFunction<C> misses, ToDoubleFunction<C> evictions, ToDoubleFunction<C> size) {
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("cache.gets", cache, hits).tags(tags).tag("result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, misses).tags(tags).tag("result", "miss").register(registry);
+        FunctionCounter.builder("cache.evictions", cache, evictions).tags(tags).register(registry);
+        Gauge.builder("cache.size", cache, size).tags(tags).register(registry);
+    }
+
+}
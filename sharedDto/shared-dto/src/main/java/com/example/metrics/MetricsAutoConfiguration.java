@@ -0,0 +1,67 @@
+package com.example.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.core.MicrometerProducerListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+// the metrics defaults of every service: actuator/prometheus exposure, histograms and kafka observation
+// from metrics.properties next to this class. a @PropertySource has the lowest precedence, so
+// application.properties and the environment still override every entry
+@AutoConfiguration
+@PropertySource("classpath:com/example/metrics/metrics.properties")
+public class MetricsAutoConfiguration {
+
+    // kafka client metrics, records-lag-max per partition among them, on every consumer and producer factory
+    // of the service, whether Spring Boot built it or the service declared its own
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(DefaultKafkaConsumerFactory.class)
+    static class KafkaClientMetricsConfiguration {
+
+        @Bean
+        static BeanPostProcessor kafkaClientMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new BeanPostProcessor() {
+
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DefaultKafkaConsumerFactory<?, ?> consumerFactory) {
+                        bind(consumerFactory, meterRegistry);
+                    } else if (bean instanceof DefaultKafkaProducerFactory<?, ?> producerFactory) {
+                        bind(producerFactory, meterRegistry);
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        // Spring Boot adds the listener to the factories it builds itself, they must not get a second one
+        private static <K, V> void bind(DefaultKafkaConsumerFactory<K, V> factory,
+                ObjectProvider<MeterRegistry> meterRegistry) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null
+                    && factory.getListeners().stream().noneMatch(MicrometerConsumerListener.class::isInstance)) {
+                factory.addListener(new MicrometerConsumerListener<>(registry));
+            }
+        }
+
+        private static <K, V> void bind(DefaultKafkaProducerFactory<K, V> factory,
+                ObjectProvider<MeterRegistry> meterRegistry) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry != null
+                    && factory.getListeners().stream().noneMatch(MicrometerProducerListener.class::isInstance)) {
+                factory.addListener(new MicrometerProducerListener<>(registry));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.example.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+// times a Mono from subscription to its terminal signal, tagged with outcome (SUCCESS, ERROR, CANCELLED)
+// and the exception name. the timers publish a percentile histogram so latency percentiles can be
+// aggregated across instances in Prometheus
+public final class MonoTimer {
+
+    private MonoTimer() {
+    }
+
+    public static <T> Mono<T> time(MeterRegistry registry, String name, Tags tags, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            Throwable[] failure = new Throwable[1];
+            return call
+                    .doOnError(error -> failure[0] = error)
+                    .doFinally(signal -> sample.stop(timer(registry, name, tags, signal, failure[0])));
+        });
+    }
+
+    private static Timer timer(MeterRegistry registry, String name, Tags tags, SignalType signal, Throwable error) {
+        String outcome = signal == SignalType.CANCEL ? "CANCELLED" : error == null ? "SUCCESS" : "ERROR";
+        return Timer.builder(name)
+                .tags(tags)
+                .tag("outcome", outcome)
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.example.page;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// keyset pagination of one entity on its id, so every page costs the same no matter how deep it is.
+// an unreadable cursor fails with the exception the service answers bad requests with
+public class KeysetPages<T> {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final R2dbcEntityTemplate template;
+
+    private final Class<T> type;
+
+    private final Function<T, Long> idOf;
+
+    private final int maxPageSize;
+
+    private final Function<String, ? extends Throwable> invalidCursor;
+
+    public KeysetPages(R2dbcEntityTemplate template, Class<T> type, Function<T, Long> idOf, int maxPageSize,
+            Function<String, ? extends Throwable> invalidCursor) {
+        this.template = template;
+        this.type = type;
+        this.idOf = idOf;
+        this.maxPageSize = maxPageSize;
+        this.invalidCursor = invalidCursor;
+    }
+
+    public Mono<CursorPage<T>> page(String cursor, Integer size) {
+        long afterId;
+        try {
+            afterId = CursorPage.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(invalidCursor.apply(e.getMessage()));
+        }
+        int pageSize = Math.min(Math.max(size == null ? DEFAULT_PAGE_SIZE : size, 1), maxPageSize);
+
+        // one extra row tells whether there is a next page
+        return findAfter(afterId, pageSize + 1)
+                .map(rows -> {
+                    if (rows.size() <= pageSize) {
+                        return new CursorPage<>(rows, null);
+                    }
+                    List<T> page = rows.subList(0, pageSize);
+                    return new CursorPage<>(page, CursorPage.encodeCursor(idOf.apply(page.get(pageSize - 1))));
+                });
+    }
+
+    // every row for export, read in keyset batches only as fast as the client consumes them
+    public Flux<T> stream() {
+        return findAfter(0L, maxPageSize)
+                .expand(batch -> batch.size() < maxPageSize
+                        ? Mono.empty()
+                        : findAfter(idOf.apply(batch.get(batch.size() - 1)), maxPageSize))
+                .flatMapIterable(batch -> batch);
+    }
+
+    private Mono<List<T>> findAfter(long afterId, int limit) {
+        return template.select(type)
+                .matching(Query.query(Criteria.where("id").greaterThan(afterId))
+                        .sort(Sort.by("id").ascending())
+                        .limit(limit))
+                .all()
+                .collectList();
+    }
+
+}
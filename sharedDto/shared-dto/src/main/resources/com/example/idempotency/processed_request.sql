@@ -0,0 +1,7 @@
+CREATE TABLE IF NOT EXISTS processed_request (
+    operation VARCHAR(64) NOT NULL,
+    order_id VARCHAR(64) NOT NULL,
+    response TEXT,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (operation, order_id)
+);
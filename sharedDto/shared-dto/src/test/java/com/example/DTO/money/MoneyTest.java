@@ -0,0 +1,47 @@
+package com.example.DTO.money;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MoneyTest {
+
+    @Test
+    void floatAmountsConvertWithoutBinaryDrift() {
+        assertEquals(1999L, Money.ofMajor(19.99f).getMinorUnits());
+        assertEquals(10L, Money.ofMajor(0.1f).getMinorUnits());
+        assertNull(Money.ofMajor((Float) null));
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money price = Money.ofMajor(new BigDecimal("0.10"));
+
+        Money total = price.times(3);
+
+        assertEquals(Money.ofMinor(30L), total);
+        assertEquals("0.30", total.toString());
+        assertEquals(Money.ZERO, total.minus(Money.ofMinor(30L)));
+        assertTrue(Money.ofMinor(29L).isLessThan(total));
+    }
+
+    @Test
+    void overflowIsAnError() {
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1L)));
+    }
+
+    @Test
+    void jsonIsTheNumberOfMinorUnits() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertEquals("1999", objectMapper.writeValueAsString(Money.ofMinor(1999L)));
+        assertEquals(Money.ofMinor(1999L), objectMapper.readValue("1999", Money.class));
+    }
+}
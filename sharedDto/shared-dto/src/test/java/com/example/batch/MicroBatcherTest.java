@@ -0,0 +1,53 @@
+package com.example.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class MicroBatcherTest {
+
+    private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private MicroBatcher<String, Integer, Integer> batcher(int maxBatch) {
+        return new MicroBatcher<>("test", Duration.ofMillis(20), maxBatch, new SimpleMeterRegistry(),
+                (key, items) -> {
+                    batches.add(items);
+                    return Mono.just(items.stream().map(item -> item * 10).toList());
+                });
+    }
+
+    @Test
+    void answersEveryCallerFromOneBatchInArrivalOrder() {
+        MicroBatcher<String, Integer, Integer> batcher = batcher(64);
+
+        List<Integer> results = Flux.range(1, 5)
+                .flatMapSequential(item -> batcher.submit("customer-1", item))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(10, 20, 30, 40, 50), results);
+        assertEquals(List.of(List.of(1, 2, 3, 4, 5)), batches);
+    }
+
+    @Test
+    void splitsAtMaxBatchAndKeepsKeysApart() {
+        MicroBatcher<String, Integer, Integer> batcher = batcher(2);
+
+        Flux.range(1, 3)
+                .flatMap(item -> Flux.merge(batcher.submit("a", item), batcher.submit("b", item + 100)))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(4, batches.size());
+        assertEquals(List.of(List.of(1, 2), List.of(3)), batches.stream().filter(batch -> batch.get(0) < 100).toList());
+    }
+
+}
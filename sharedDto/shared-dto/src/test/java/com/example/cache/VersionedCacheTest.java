@@ -0,0 +1,60 @@
+package com.example.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+public class VersionedCacheTest {
+
+    private VersionedCache<Long, String> cache(int maxSize, Duration ttl) {
+        return new VersionedCache<>("test", maxSize, ttl, UnaryOperator.identity());
+    }
+
+    @Test
+    void sizeIsBoundedAndExpiredEntriesAreDropped() {
+        VersionedCache<Long, String> cache = cache(3, Duration.ofMinutes(1));
+        for (long id = 1; id <= 10; id++) {
+            cache.put(id, "value " + id);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(7, cache.getEvictions());
+
+        VersionedCache<Long, String> expiring = cache(10, Duration.ZERO);
+        expiring.put(1L, "value");
+        assertNull(expiring.getIfPresent(1L));
+        assertEquals(1, expiring.getEvictions());
+    }
+
+    @Test
+    void aMarkerRefusesOlderLoads() {
+        VersionedCache<Long, String> cache = cache(10, Duration.ofMinutes(1));
+        cache.offer(1L, "version 3", 3);
+
+        cache.invalidate(1L, 4);
+        assertNull(cache.getIfPresent(1L));
+
+        cache.offer(1L, "version 3", 3);
+        assertNull(cache.getIfPresent(1L));
+
+        cache.offer(1L, "version 4", 4);
+        assertEquals("version 4", cache.getIfPresent(1L));
+    }
+
+    @Test
+    void anUnversionedLoadOnlyFillsAnEmptySlot() {
+        VersionedCache<Long, String> cache = cache(10, Duration.ofMinutes(1));
+        cache.put(1L, "written");
+
+        cache.offer(1L, "loaded", VersionedCache.UNVERSIONED);
+        assertEquals("written", cache.getIfPresent(1L));
+
+        cache.invalidate(1L);
+        cache.offer(1L, "loaded", VersionedCache.UNVERSIONED);
+        assertEquals("loaded", cache.getIfPresent(1L));
+    }
+
+}
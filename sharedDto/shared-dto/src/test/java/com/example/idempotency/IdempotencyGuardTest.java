@@ -0,0 +1,97 @@
+package com.example.idempotency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.example.batch.MicroBatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class IdempotencyGuardTest {
+
+    private static final int POOL_SIZE = 2;
+
+    private static final int CALLERS = 8;
+
+    private ConnectionPool pool;
+
+    private DatabaseClient databaseClient;
+
+    private TransactionalOperator transactionalOperator;
+
+    private IdempotencyGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(
+                "r2dbc:h2:mem:///idempotency-" + System.nanoTime() + "?options=MODE=PostgreSQL;DB_CLOSE_DELAY=-1"))
+                .initialSize(1)
+                .maxSize(POOL_SIZE)
+                .maxAcquireTime(Duration.ofSeconds(5))
+                .build());
+        databaseClient = DatabaseClient.create(pool);
+        transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(pool));
+        databaseClient.sql("CREATE TABLE processed_request (operation VARCHAR(64) NOT NULL,"
+                + " order_id VARCHAR(64) NOT NULL, response TEXT, created_at TIMESTAMP NOT NULL,"
+                + " PRIMARY KEY (operation, order_id))")
+                .then()
+                .block();
+        guard = new IdempotencyGuard(databaseClient, transactionalOperator, new ObjectMapper(), 0,
+                IllegalStateException::new);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.dispose();
+    }
+
+    // more guarded callers than pooled connections, all waiting on one batch that needs a connection itself
+    @Test
+    void detachedCallersDoNotStarveTheBatchOfConnections() {
+        MicroBatcher<String, Long, Long> batcher = new MicroBatcher<>("test", Duration.ofMillis(20), CALLERS,
+                new SimpleMeterRegistry(),
+                (key, orderIds) -> transactionalOperator.transactional(databaseClient.sql("SELECT 1")
+                        .map(row -> 1)
+                        .all()
+                        .then(Mono.just(orderIds))));
+
+        List<Long> answers = Flux.range(1, CALLERS)
+                .flatMap(i -> guard.executeDetached("reserve", (long) i, Long.class,
+                        () -> batcher.submit("product", (long) i)), CALLERS)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(CALLERS, answers.size());
+    }
+
+    @Test
+    void aRepeatedDetachedCallGetsTheStoredResponse() {
+        AtomicInteger runs = new AtomicInteger();
+
+        Long first = guard.executeDetached("reserve", 1L, Long.class,
+                () -> Mono.fromCallable(() -> (long) runs.incrementAndGet())).block();
+        Long second = guard.executeDetached("reserve", 1L, Long.class,
+                () -> Mono.fromCallable(() -> (long) runs.incrementAndGet())).block();
+
+        assertEquals(1L, first);
+        assertEquals(1L, second);
+        assertEquals(1, runs.get());
+    }
+
+}
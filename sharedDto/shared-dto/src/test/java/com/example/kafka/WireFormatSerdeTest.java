@@ -0,0 +1,49 @@
+package com.example.kafka;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import com.example.DTO.money.Money;
+import com.example.DTO.order.BasketDTOSend;
+import com.example.DTO.order.BasketItemDTO;
+
+public class WireFormatSerdeTest {
+
+    private static final String TOPIC = "order-update";
+
+    private final BasketDTOSend basket = new BasketDTOSend(1001L, 7L, "PROCESSING", Money.ofMinor(5997),
+            LocalDateTime.of(2024, 7, 1, 12, 30), List.of(new BasketItemDTO(42L, 3, Money.ofMinor(1999))));
+
+    private WireFormatSerializer serializer(String format) {
+        WireFormatSerializer serializer = new WireFormatSerializer();
+        serializer.configure(Map.of(WireFormatSerializer.WIRE_FORMAT_CONFIG, format), false);
+        return serializer;
+    }
+
+    private WireFormatDeserializer deserializer() {
+        WireFormatDeserializer deserializer = new WireFormatDeserializer();
+        deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.example.DTO"), false);
+        return deserializer;
+    }
+
+    @Test
+    void readsCborAndJsonWithTheSameDeserializer() {
+        RecordHeaders cborHeaders = new RecordHeaders();
+        byte[] cbor = serializer("cbor").serialize(TOPIC, cborHeaders, basket);
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = serializer("json").serialize(TOPIC, jsonHeaders, basket);
+
+        assertEquals(basket, deserializer().deserialize(TOPIC, cborHeaders, cbor));
+        assertEquals(basket, deserializer().deserialize(TOPIC, jsonHeaders, json));
+        assertTrue(cbor.length < json.length, cbor.length + " >= " + json.length);
+    }
+
+}
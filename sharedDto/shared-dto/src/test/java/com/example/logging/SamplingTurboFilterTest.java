@@ -0,0 +1,45 @@
+package com.example.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.FilterReply;
+
+public class SamplingTurboFilterTest {
+
+    private FilterReply decide(SamplingTurboFilter filter, Marker marker, Level level) {
+        return filter.decide(marker, null, level, "message", null, null);
+    }
+
+    @Test
+    void keepsOneInEveryPerPath() {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setEvery(3);
+        Marker reserved = LogSampling.path("test.reserved");
+        Marker debited = LogSampling.path("test.debited");
+
+        assertEquals(FilterReply.NEUTRAL, decide(filter, reserved, Level.INFO));
+        assertEquals(FilterReply.DENY, decide(filter, reserved, Level.INFO));
+        // every path has its own count
+        assertEquals(FilterReply.NEUTRAL, decide(filter, debited, Level.INFO));
+        assertEquals(FilterReply.DENY, decide(filter, reserved, Level.INFO));
+        assertEquals(FilterReply.NEUTRAL, decide(filter, reserved, Level.INFO));
+    }
+
+    @Test
+    void leavesUnmarkedAndWarningEventsAlone() {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setEvery(1000);
+        Marker reserved = LogSampling.path("test.warned");
+
+        decide(filter, reserved, Level.INFO);
+        assertEquals(FilterReply.NEUTRAL, decide(filter, reserved, Level.WARN));
+        assertEquals(FilterReply.NEUTRAL, decide(filter, null, Level.INFO));
+        assertEquals(FilterReply.NEUTRAL, decide(filter, MarkerFactory.getMarker("OTHER"), Level.INFO));
+    }
+
+}